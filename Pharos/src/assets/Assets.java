@@ -11,7 +11,7 @@ import component.Component;
 import component.Tile;
 import model.Debug;
 import model.Game;
-import model.Loader;
+import model.TextureCache;
 import model.TileManager;
 import state.State;
 import view.SpriteSheet;
@@ -46,7 +46,17 @@ public class Assets {
     public static StartGameButton startGameButton;
     
     //Game Assets
+    /** The background of the game */
     public static GameBackground gameBackground;
+    
+    /** The path of the sheet of the main menu buttons */
+    private static final String MENU_BUTTONS = "/textures/menu_state_sheet.png";
+    /** The path of the light on top of the tower in the main menu */
+    private static final String LIGHT_ANIMATION = "/textures/light_animation.png";
+    /** The path of the background of the main menu */
+    private static final String MENU_BACKGROUND = "/textures/menu_background.png";
+    /** The path of the background of the game */
+    private static final String GAME_BACKGROUND = "/textures/debug_background.png";
 
     //Loading Screen Assets (never unloaded)
     /**
@@ -65,7 +75,7 @@ public class Assets {
     public static void loadMenuAssets() {
         lightAnimation = new LightAnimation();
         menuBackground = new MenuBackground();
-        menuButtonSheet = new SpriteSheet(400, 80, Loader.loadTexture("/textures/menu_state_sheet.png"));
+        menuButtonSheet = new SpriteSheet(400, 80, TextureCache.acquire(MENU_BUTTONS));
         settingsButton = new SettingsButton();
         startGameButton = new StartGameButton();
     }
@@ -77,14 +87,25 @@ public class Assets {
         menuBackground = null;
         menuButtonSheet = null;
         settingsButton = null;
+        startGameButton = null;
+        TextureCache.release(LIGHT_ANIMATION);
+        TextureCache.release(MENU_BACKGROUND);
+        TextureCache.release(MENU_BUTTONS);
     }
     
     //Game Assets
+    /**
+     * Loads the assets for the game state
+     */
     public static void loadGameAssets() {
         gameBackground = new GameBackground();
     }
+    /**
+     * Unloads the assets for the game state
+     */
     public static void unloadGameAssets() {
         gameBackground = null;
+        TextureCache.release(GAME_BACKGROUND);
     }
     
     //Loading Screen Assets
@@ -94,7 +115,7 @@ public class Assets {
      */
     private static class LoadingBackground extends Component {
         public LoadingBackground() {
-            super(Loader.loadTexture("/textures/loading_background.png"));
+            super(TextureCache.acquire("/textures/loading_background.png"));
         }
     }
     /**
@@ -104,7 +125,7 @@ public class Assets {
     private static class LoadingText extends Component {
         public LoadingText() {
             super(null);
-            animator = new Animator(new SpriteSheet(450, 100, Loader.loadTexture("/textures/loading_text_animated.png")), 20);
+            animator = new Animator(new SpriteSheet(450, 100, TextureCache.acquire("/textures/loading_text_animated.png")), 20);
         }
     }
     
@@ -119,7 +140,7 @@ public class Assets {
          */
         public LightAnimation() {
             super(null);
-            animator = new Animator(new SpriteSheet(40, 40, Loader.loadTexture("/textures/light_animation.png")), 5);
+            animator = new Animator(new SpriteSheet(40, 40, TextureCache.acquire(LIGHT_ANIMATION)), 5);
         }
     }
     /**
@@ -128,7 +149,7 @@ public class Assets {
      */
     private static class MenuBackground extends Component {
         public MenuBackground() {
-            super(Loader.loadTexture("/textures/menu_background.png"));
+            super(TextureCache.acquire(MENU_BACKGROUND));
         }
     }
     /**
@@ -148,12 +169,12 @@ public class Assets {
         
         @Override
         public void onMouseOver() {
-            texture = lit;
+            updateTexture(lit);
         }
 
         @Override
         public void onMouseLeave() {
-            texture = unlit;
+            updateTexture(unlit);
         }
 
         @Override
@@ -179,10 +200,14 @@ public class Assets {
             updateTexture(unlit);
         }
         
-        /***/
+        /**
+         * Lights up the button and starts loading the game, so that it is ready by the time it is clicked
+         * @see state.State#preload(State)
+         */
         @Override
         public void onMouseOver() {
-            texture = lit;
+            updateTexture(lit);
+            State.preload(Game.gameState);
         }
 
         /***/
@@ -194,7 +219,7 @@ public class Assets {
         /***/
         @Override
         public void onMouseLeave() {
-            texture = unlit;
+            updateTexture(unlit);
         }
     }
     
@@ -205,7 +230,7 @@ public class Assets {
      */
     private static class GameBackground extends Component {
         private GameBackground() {
-            super(Loader.loadTexture("/textures/debug_background.png"));
+            super(TextureCache.acquire(GAME_BACKGROUND));
         }
     }
 }
@@ -53,4 +53,12 @@ public class Animator {
         }
         return frames.get(frameIndex);
     }
+    
+    /**
+     * Starts the animation again from its first frame
+     */
+    public void reset() {
+        frameIndex = 0;
+        intraFrameIndex = 0;
+    }
 }
@@ -7,6 +7,8 @@ import java.awt.Graphics;
 import java.awt.Point;
 import java.awt.image.BufferedImage;
 
+import view.DirtyRegion;
+
 /**
  * A class representing a visual component of the game.
  * @author Spencer Yoder
@@ -45,8 +47,12 @@ public abstract class Component {
      * @param y the new y position
      */
     public void place(int x, int y) {
-        this.x = x;
-        this.y = y;
+        if(x != this.x || y != this.y) {
+            markDirty();
+            this.x = x;
+            this.y = y;
+            markDirty();
+        }
     }
     
     /**
@@ -63,6 +69,24 @@ public abstract class Component {
         }
     }
     
+    /**
+     * Draws this component to the screen scaled to the given size.
+     * The size is kept as the size of the Component so that it is marked dirty at the size it is drawn.
+     * @param g the Graphics to which this method will draw
+     * @param width the width to draw the Component at
+     * @param height the height to draw the Component at
+     */
+    public void render(Graphics g, int width, int height) {
+        if(animator != null) {
+            updateTexture(animator.nextFrame());
+        }
+        this.width = width;
+        this.height = height;
+        if(texture != null) {
+            g.drawImage(texture, x, y, width, height, null);
+        }
+    }
+    
     /**
      * Sets the layer of this component
      * @see view.LayerManager
@@ -91,13 +115,23 @@ public abstract class Component {
      * @param texture the new texture
      */
     public void updateTexture(BufferedImage texture) {
-        if(texture != null) {
+        if(texture != null && texture != this.texture) {
+            markDirty();
             this.texture = texture;
             this.width = texture.getWidth();
             this.height = texture.getHeight();
+            markDirty();
         }
     }
     
+    /**
+     * Marks the area this Component occupies on screen as needing to be redrawn
+     * @see view.DirtyRegion
+     */
+    public void markDirty() {
+        DirtyRegion.add(x, y, width, height);
+    }
+    
     /**
      * @return a String representation of this Component for debugging
      */
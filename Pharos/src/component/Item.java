@@ -3,130 +3,77 @@
  */
 package component;
 
-import java.awt.Graphics;
 import java.util.Random;
 
-import model.Game;
-import model.Loader;
-import view.SpriteSheet;
-
 /**
  * A class representing a collectible item which can be stored in the inventory.
- * Upon spawning, the item will shoot off in a random direction.
- * Items are collected upon mouse-over
+ * An Item is one dropped item of an {@link component.ItemType}: once it is spawned, it is kept in the
+ * {@link model.EntityStore}, where it shoots off in a random direction and is collected upon mouse-over.
+ * Everything Items of the same kind share (their animation and the Tile they place) belongs to their ItemType,
+ * which is what the inventory keeps track of once an Item is collected.
  * @author Spencer Yoder
  */
-public abstract class Item extends ClickableComponent {
-    /** The initial speed of the Item */
-    private int speed;
-    /** The direction of the Item */
+public class Item {
+    /** The speed an Item shoots off at when it is dropped */
+    public static final int SPEED = 15;
+    /** Chooses the direction of each Item (shared so that it can be seeded) */
+    private static Random random = new Random();
+    /** The kind of the Item */
+    private ItemType type;
+    /** The x position (in pixels in the world) the Item is dropped at */
+    private int x;
+    /** The y position (in pixels in the world) the Item is dropped at */
+    private int y;
+    /** The direction the Item shoots off in */
     private double direction;
     
     /**
-     * Constructs a new Item with the given {@link view.SpriteSheet}, x, and y.
-     * @param spriteSheet, a SpriteSheet where each sprite is a frame in the Item's animation.
-     * @param x the initial x coordinate of the Item
-     * @param y the initial y coordinate of the Item
-     */
-    public Item(SpriteSheet spriteSheet, int x, int y) {
-        super(null);
-        animator = new Animator(spriteSheet, 5);
-        place(x+ 3, y + 3);
-        speed = 15;
-        Random r = new Random();
-        direction = r.nextDouble() * 360;
-    }
-
-    /**
-     * Upon mouse-over, the item is collected
-     * @see state.GameState#handleItemCollect(Item)
+     * Constructs a new Item of the given {@link component.ItemType}, dropped at the given x and y.
+     * @param type the kind of the Item
+     * @param x the x position (in pixels in the world) of the Tile the Item is dropped from
+     * @param y the y position (in pixels in the world) of the Tile the Item is dropped from
      */
-    @Override
-    public void onMouseOver() {
-        Game.gameState.handleItemCollect(this);
+    public Item(ItemType type, int x, int y) {
+        this.type = type;
+        this.x = x + 3;
+        this.y = y + 3;
+        direction = random.nextDouble() * 360;
     }
     
     /**
-     * @return a new {@link component.Tile} which this Item represents
+     * Seeds the directions Items shoot off in, so that the same Items always move the same way
+     * (for rendering the same frames in benchmarks)
+     * @param seed the seed
      */
-    public abstract Tile getTile();
+    public static void setSeed(long seed) {
+        random.setSeed(seed);
+    }
 
     /**
-     * Shoots the Item in its direction with decelerating speed
+     * @return the kind of the Item
      */
-    @Override
-    public void render(Graphics g) {
-        super.render(g);
-        if(speed > 0) {
-            int dx = (int) (Math.cos(direction) * speed);
-            int dy = (int) (Math.sin(direction) * speed);
-            int realX = x + dx > Game.width - Tile.LENGTH || x + dx < 0 ? x : x + dx;
-            int realY = y + dy > Game.height - Tile.LENGTH || y + dy < 0 ? y : y + dy;
-            place(realX, realY);
-            speed--;
-        }
+    public ItemType getType() {
+        return type;
     }
     
     /**
-     * An Item for {@link component.Tile.DirtTile}
-     * @author Spencer Yoder
+     * @return the x position (in pixels in the world) the Item is dropped at
      */
-    public static class MudItem extends Item {
-        /** See {@link component.Item#Item(SpriteSheet, int, int)} */
-        private static final SpriteSheet mudSheet = new SpriteSheet(44, 44, Loader.loadTexture("/textures/item/mud_item_sheet2.png"));
-
-        /** 
-         * See {@link component.Item#Item(SpriteSheet, int, int)} 
-         */
-        public MudItem(int x, int y) {
-            super(mudSheet, x, y);
-        }
-        
-        @Override
-        public Tile getTile() {
-            return new Tile.DirtTile();
-        }
+    public int getX() {
+        return x;
     }
     
     /**
-     * An Item for {@link component.Tile.StoneTile}
-     * @author Spencer Yoder
+     * @return the y position (in pixels in the world) the Item is dropped at
      */
-    public static class StoneItem extends Item {
-        /**
-         * See {@link component.Item#Item(SpriteSheet, int, int)}
-         */
-        public StoneItem(int x, int y) {
-            super(stoneSheet, x, y);
-        }
-        
-        /** See {@link component.Item#Item(SpriteSheet, int, int)} */
-        private static final SpriteSheet stoneSheet = new SpriteSheet(44, 44, Loader.loadTexture("/textures/item/cobblestone_item_sheet.png"));
-        
-        @Override
-        public Tile getTile() {
-            return new Tile.StoneTile();
-        }
+    public int getY() {
+        return y;
     }
     
     /**
-     * An Item for {@link component.Tile.ScaffoldTile}
-     * @author Spencer Yoder
+     * @return the direction (in radians) the Item shoots off in when it is dropped
      */
-    public static class ScaffoldItem extends Item {
-        /** See {@link component.Item#Item(SpriteSheet, int, int)} */
-        private static final SpriteSheet scaffoldSheet = new SpriteSheet(44, 44, Loader.loadTexture("/textures/item/scaffold_item_sheet.png"));
-        
-        /**
-         * See {@link component.Item#Item(SpriteSheet, int, int)}
-         */
-        public ScaffoldItem(int x, int y) {
-            super(scaffoldSheet, x, y);
-        }
-
-        @Override
-        public Tile getTile() {
-            return new Tile.ScaffoldTile();
-        }
+    public double getDirection() {
+        return direction;
     }
 }
@@ -0,0 +1,156 @@
+/**
+ * 
+ */
+package component;
+
+import java.awt.image.BufferedImage;
+
+import model.TextureCache;
+import model.TextureCache.Texture;
+import view.SpriteSheet;
+
+/**
+ * A kind of Item. Every kind is defined once, here, and given an id in the order it is defined, so that anything
+ * which keeps track of Items by kind (like the {@link model.Inventory}) can store them in arrays indexed by id.
+ * Everything the Items of a kind share, like their animation, belongs to their ItemType.
+ */
+public class ItemType {
+    /** The duration (in frames) of each frame of an Item's animation */
+    public static final int FRAME_DURATION = 5;
+    /** Every ItemType, indexed by id */
+    private static ItemType[] types = new ItemType[4];
+    /** How many ItemTypes there are */
+    private static int count;
+
+    /** Mud, which places dirt */
+    public static final ItemType MUD = new ItemType("Mud", "/textures/item/mud_item_sheet2.png", "dirt");
+    /** Stone, which places stone */
+    public static final ItemType STONE = new ItemType("Stone", "/textures/item/cobblestone_item_sheet.png", "stone");
+    /** Scaffolding, which places scaffolding */
+    public static final ItemType SCAFFOLD = new ItemType("Scaffold", "/textures/item/scaffold_item_sheet.png", "scaffold");
+    /** Water, which places water */
+    public static final ItemType WATER = new ItemType("Water", "/textures/item/water_item_sheet.png", "water");
+
+    /** The id of this ItemType */
+    private int id;
+    /** The name of this ItemType */
+    private String name;
+    /** The sheet of the frames of the animation, read left-to-right, top-to-bottom */
+    private Texture texture;
+    /** The name of the kind of Tile the Items of this type place (see {@link component.TileType#get(String)}) */
+    private String tileName;
+
+    /**
+     * Constructs and registers a new ItemType
+     * @param name the name of the ItemType
+     * @param texture the path of the sheet of the frames of the animation, which are 44 pixels wide and tall
+     * @param tileName the name of the kind of Tile the Items of this type place
+     */
+    private ItemType(String name, String texture, String tileName) {
+        this.name = name;
+        this.tileName = tileName;
+        this.texture = TextureCache.get(texture);
+        id = count;
+        if(count == types.length) {
+            ItemType[] bigger = new ItemType[count * 2];
+            System.arraycopy(types, 0, bigger, 0, count);
+            types = bigger;
+        }
+        types[count++] = this;
+    }
+
+    /**
+     * @param id the id of an ItemType
+     * @return the ItemType with the given id
+     * @throws IllegalArgumentException if there is no ItemType with the given id
+     */
+    public static ItemType get(int id) {
+        if(id < 0 || id >= count) {
+            throw new IllegalArgumentException("No item type with id " + id);
+        }
+        return types[id];
+    }
+
+    /**
+     * @return how many ItemTypes there are (every id is less than this)
+     */
+    public static int count() {
+        return count;
+    }
+
+    /**
+     * @param name the name of an ItemType
+     * @return the ItemType with the given name
+     * @throws IllegalArgumentException if there is no ItemType with the given name
+     */
+    public static ItemType get(String name) {
+        for(int k = 0; k < count; k++) {
+            if(types[k].name.equals(name)) {
+                return types[k];
+            }
+        }
+        throw new IllegalArgumentException("No item type named " + name);
+    }
+
+    /**
+     * @return the kind of {@link component.Tile} the Items of this type place
+     */
+    public TileType getTileType() {
+        return TileType.get(tileName);
+    }
+
+    /**
+     * @param age how many frames the animation has been running for
+     * @return the frame of the animation to show after the given number of frames
+     */
+    public BufferedImage getFrame(int age) {
+        SpriteSheet sheet = getSheet();
+        int frame = age / FRAME_DURATION % (sheet.columns * sheet.rows);
+        return sheet.getSprite(frame % sheet.columns, frame / sheet.columns);
+    }
+
+    /**
+     * @return how many frames are in the animation
+     */
+    public int getFrameCount() {
+        SpriteSheet sheet = getSheet();
+        return sheet.columns * sheet.rows;
+    }
+
+    /**
+     * @return the SpriteSheet of the frames of the animation, read left-to-right, top-to-bottom
+     */
+    public SpriteSheet getSheet() {
+        return texture.getSheet(44, 44, 1);
+    }
+
+    /**
+     * @return the sheet of the frames of the animation, for keeping it loaded while it is in use
+     * @see model.TextureCache.Texture#acquire()
+     */
+    public Texture getTexture() {
+        return texture;
+    }
+
+    /**
+     * @return the id of this ItemType
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the name of this ItemType
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return a String representation of this ItemType for debugging
+     */
+    @Override
+    public String toString() {
+        return name + " (" + id + ")";
+    }
+}
@@ -4,362 +4,239 @@
 package component;
 
 import java.awt.image.BufferedImage;
-import java.util.Hashtable;
-import java.util.LinkedList;
 
-import model.Loader;
 import view.SpriteSheet;
 
 /**
  * A class representing a Tile drawn on the screen.
  * A Tile can be broken and placed by the mouse, can collapse due to the load of supporting other Tiles,
  * and can hold Tiles which are "stuck" to it on the left and right up to a certain distance.
+ * How a Tile does all of this depends on its kind (see {@link component.TileType}). Every cell of the same kind
+ * shares one Tile (see {@link component.Tile#of(TileType)}), so placing and loading Tiles creates nothing;
+ * whether a cell is locked is kept by the grid it is in (see {@link model.TileManager}).
  * @author Spencer Yoder
  */
-public abstract class Tile extends Component {
-    /** The index in the neighbors array of the Tile to the right of this one */
+public class Tile extends Component {
+    /** The direction of the Tile to the right of this one */
     public static final int RIGHT = 0;
-    /** The index in the neighbors array of the Tile above this one */
+    /** The direction of the Tile above this one */
     public static final int TOP = 1;
-    /** The index in the neighbors array of the Tile to the left of this one */
+    /** The direction of the Tile to the left of this one */
     public static final int LEFT = 2;
-    /** The index in the neighbors array of the Tile below this one */
+    /** The direction of the Tile below this one */
     public static final int BOTTOM = 3;
+    /** The change in column for each direction, indexed by {@link component.Tile#RIGHT}, {@link component.Tile#TOP},
+     * {@link component.Tile#LEFT} and {@link component.Tile#BOTTOM} */
+    public static final int[] DX = {1, 0, -1, 0};
+    /** The change in row for each direction, see {@link component.Tile#DX} */
+    public static final int[] DY = {0, -1, 0, 1};
     /** The height and width of a Tile */
     public static final int LENGTH = 50;
+    /** How many sizes of each Tile texture there are for drawing zoomed out, including the full size */
+    public static final int MIP_LEVELS = 4;
     
-    /** Whether or not the user can break this Tile */
-    protected boolean canBreak;
-    /** How long it takes the user to break this Tile (in seconds)*/
-    protected double breakTime;
-    /** Whether or not this Tile is affected by gravity */
-    protected boolean canFall;
-    /** The neighboring Tiles to this one */
-    protected Tile[] neighbors;
-    /** How many tiles can be above this one before it collapses and turns into an item
-     * -1 if the tile cannot collapse */
-    protected int strength;
-    /** How many tiles this one can hold in place to prevent falling */
-    protected int stickiness;
-    /** The SpriteSheet of textures for tiles that are editable (in the range of the tower) */
-    private static SpriteSheet tileSheet = new SpriteSheet(50, 50, Loader.loadTexture("/textures/tiles/tile_sheet.png"));
-    /** The SpriteSheet of textures for tiles that are not editable */
-    private static SpriteSheet lockedSheet = new SpriteSheet(50, 50, Loader.loadTexture("/textures/tiles/locked_tile_sheet.png"));
-    /** Whether or not the Tile is in the range of the tower and is editable */
-    public boolean locked;
-    /** The texture for this Tile when it is locked */
-    private BufferedImage lockedTexture;
-    /** The texture for this Tile when it is unlocked */
-    private BufferedImage unlockedTexture;
+    /** The Tile shared by every cell of each kind, indexed by the id of the kind (null for ids no kind has) */
+    private static final Tile[] SHARED = createShared();
     
-    /**
-     * Constructs a new Tile with the given states
-     * @param texture the texture for the display of this tile (Must be 50x50 pixels)
-     * @param canBreak Whether or not this tile can be broken by the user
-     * @param breakTime How long it takes this tile to be broken by the use (in seconds)
-     * @param canFall Whether or not this tile is affected by gravity
-     * @param strength How many tiles can be on top of this one before it breaks (-1 if indestructable)
-     * @param stickiness How many tiles to either side this one can prevent from falling
-     */
-    public Tile(BufferedImage texture, BufferedImage lockedTexture, boolean canBreak, double breakTime,
-            boolean canFall, int strength, int stickiness) {
-        super(texture);
-        this.canBreak = canBreak;
-        this.breakTime = breakTime;
-        this.canFall = canFall;
-        this.strength = strength;
-        this.stickiness = stickiness;
-        neighbors = new Tile[4];
-        lock();
-        this.unlockedTexture = texture;
-        this.lockedTexture = lockedTexture;
-    }
+    /** The kind of this Tile */
+    private TileType type;
     
     /**
-     * The behavior of this tile when it is right clicked
+     * Constructs a new Tile of the given kind.
+     * Cells use the shared Tile of their kind instead (see {@link component.Tile#of(TileType)}).
+     * @param type the kind of the Tile
      */
-    public void onRightClick() {
-        //Override if behavior exists, otherwise, this method does nothing
+    protected Tile(TileType type) {
+        super(null);
+        this.type = type;
+        if(type.getAnimation() != null) {
+            animator = new Animator(type.getAnimation(), type.getFrameDuration());
+        }
     }
     
-    public abstract Item getItem();
-    
     /**
-     * Sets a neighbor of this tile using {@link component.Tile#RIGHT}, {@link component.Tile#LEFT}, 
-     * {@link component.Tile#TOP}, or {@link component.Tile#BOTTOM}
-     * @param neighbor the Tile this will be neighboring
-     * @param idx the index of the neighbors array the new neighbor will occupy
+     * @return the Tile shared by every cell of each kind, indexed by the id of the kind
      */
-    public void setNeighbor(Tile neighbor, int idx) {
-        neighbors[idx] = neighbor;
+    private static Tile[] createShared() {
+        Tile[] shared = new Tile[TileType.MAX_ID + 1];
+        for(int id = 1; id <= TileType.MAX_ID; id++) {
+            TileType type = TileType.get(id);
+            if(type != null) {
+                shared[id] = new Tile(type);
+            }
+        }
+        return shared;
     }
     
     /**
-     * Removes the neighbor at the given index of this Tile
-     * @param idx {@link component.Tile#RIGHT}, {@link component.Tile#LEFT}, 
-     * {@link component.Tile#TOP}, or {@link component.Tile#BOTTOM}
+     * Animated kinds share their Animator too, so every cell of such a kind shows the same frame.
+     * @param type a kind of Tile
+     * @return the Tile shared by every cell of the given kind
      */
-    public void removeNeighbor(int idx) {
-        neighbors[idx] = null;
+    public static Tile of(TileType type) {
+        return SHARED[type.getId()];
     }
     
     /**
-     * @return true if this Tile should fall given its state and the state of its neighbors
+     * Starts the animations of every animated kind again from their first frames, for a new world
      */
-    public boolean willFall() {
-        if(canFall && !locked) {
-            if(neighbors[BOTTOM] == null) {
-                if(checkSide(LEFT, stickiness)) {
-                    return false;
-                }
-                if(checkSide(RIGHT, stickiness)) {
-                    return false;
-                }
-                return true;
+    public static void restartAnimations() {
+        for(Tile t : SHARED) {
+            if(t != null && t.animator != null) {
+                t.animator.reset();
             }
-            return false;
         }
-        return false;
     }
     
     /**
-     * Checks the side of this Tile to see if it has enough Tiles to its one side keeping it from falling
-     * @param direction {@link component.Tile#RIGHT} or {@link component.Tile#LEFT}, 
-     * @param stickFactor How many tiles before this one will fall
-     * @return true if this Tile is secure
+     * @param kind the id of a kind of Tile
+     * @return the Tile shared by every cell of the given kind (null if the id is 0 or unknown)
+     * @see component.Tile#kindOf(Tile)
      */
-    private boolean checkSide(int direction, int stickFactor) {
-        if(neighbors[BOTTOM] == null) {
-            if(stickFactor == 0) {
-                return false;
-            }
-            if(neighbors[direction] != null)
-                return neighbors[direction].checkSide(direction, stickFactor - 1);
-            return false;
-        }
-        return true;
+    public static Tile create(int kind) {
+        return kind < 1 || kind >= SHARED.length ? null : SHARED[kind];
     }
     
     /**
-     * @return true if this Tile will collapse given the number of Tiles it is supporting
+     * @param t a Tile (or null)
+     * @return the id of the kind of the given Tile for saving it (0 if there is no Tile)
+     * @see component.Tile#create(int)
      */
-    public boolean willCollapse() {
-        if(!canCollapse() || neighbors[BOTTOM] == null || neighbors[BOTTOM].canCollapse())
-            return false;
-        if(weight() > strength)
-            return true;
-        return false;
+    public static int kindOf(Tile t) {
+        return t == null ? 0 : t.type.getId();
     }
     
     /**
-     * @return the number of Tiles this one is supporting
+     * @return the kind of this Tile
      */
-    private int weight() {
-        Hashtable<Tile, Tile> table = new Hashtable<Tile, Tile>();
-        LinkedList<Tile> queue = new LinkedList<Tile>();
-        queue.add(neighbors[TOP]);
-        int weight = 0;
-        if(neighbors[TOP] == null)
-            return 0;
-        do {
-            Tile current = queue.remove();
-            weight++;
-            if(weight > strength)
-                return weight;
-            for(int i = RIGHT; i < BOTTOM; i++) {
-                Tile neighbor = current.neighbors[i];
-                if(neighbor != null && !table.contains(neighbor))
-                    if(i == TOP || neighbor.neighbors[BOTTOM] == null)
-                        queue.add(neighbor);
-            }
-            table.put(current, current);
-        } while(!queue.isEmpty());
-        return weight;
-    }
-
-    public boolean canCollapse() {
-        return strength > -1;
+    public TileType getType() {
+        return type;
     }
     
     /**
-     * @param index {@link component.Tile#RIGHT}, {@link component.Tile#LEFT}, 
-     * {@link component.Tile#TOP}, or {@link component.Tile#BOTTOM}
-     * @return the neighbor at the given index
+     * @param level the mipmap level (0 for the full size texture)
+     * @param locked whether or not the cell the Tile is drawn in is locked
+     * @return the texture of this Tile at the given level, for drawing it zoomed out
+     * (null if the Tile is animated)
+     * @see view.SpriteSheet#generateMipmaps(int)
      */
-    public Tile getNeighbor(int index) {
-        return neighbors[index];
+    public BufferedImage getTexture(int level, boolean locked) {
+        if(type.getSprite() < 0) {
+            return null;
+        }
+        return TileType.getSheet(locked).getSprite(type.getSprite(), 0, level);
     }
-
+    
     /**
-     * @return The amount of time (in seconds) it takes this tile to be broken by the mouse
+     * @param locked whether or not the cell the Tile is drawn in is locked
+     * @return the SpriteSheet this Tile's texture comes from (null if the Tile is animated)
+     * @see component.Tile#getSprite()
      */
-    public double getBreakTime() {
-        return breakTime;
+    public SpriteSheet getSheet(boolean locked) {
+        if(type.getSprite() < 0) {
+            return null;
+        }
+        return TileType.getSheet(locked);
     }
-
+    
     /**
-     * @return whether or not this Tile can be broken by the mouse
+     * @return the column of this Tile's textures in the tile sheets (-1 if it is animated)
      */
-    public boolean canBreak() {
-        return canBreak;
+    public int getSprite() {
+        return type.getSprite();
     }
     
     /**
-     * This tile can no longer be interacted with by the mouse
+     * @param level the mipmap level (0 for the full size textures)
+     * @return the width and height of a Tile texture at the given level
      */
-    public void lock() {
-        locked = true;
-        texture = lockedTexture;
+    public static int getLength(int level) {
+        return TileType.getSheet(false).getWidth(level);
     }
     
     /**
-     * This Tile can now be interacted with by the mouse
+     * The position of a Tile on screen changes with the camera, so the position of the Tile in the world is given
+     * @param worldX the x position (in pixels in the world) of this Tile
+     * @param worldY the y position (in pixels in the world) of this Tile
+     * @return a new Item of the kind this Tile drops where the Tile is (null if it drops nothing)
      */
-    public void unlock() {
-        locked = false;
-        texture = unlockedTexture;
+    public Item getItem(int worldX, int worldY) {
+        return type.getItem() == null ? null : new Item(type.getItem(), worldX, worldY);
     }
     
     /**
-     * @return a String representation of this Tile for use in debugging
+     * @return whether or not this Tile is affected by gravity
+     * @see model.TileManager#tick()
      */
-    @Override
-    public String toString() {
-        return getClass().toString();
+    public boolean canFall() {
+        return type.canFall();
     }
     
     /**
-     * For use in the Hashtable used by {@link component.Tile#weight()}
+     * @return how many Tiles along its row this Tile can be from a supported Tile without falling
+     * @see model.IntegritySolver
      */
-    @Override
-    public int hashCode() {
-        return Integer.hashCode((x + y) * y * x);
+    public int getStickiness() {
+        return type.getStickiness();
     }
     
     /**
-     * A class for the Crystal at the top of the tower
-     * @author Spencer Yoder
+     * @return whether or not this Tile collapses when too many Tiles are above it
      */
-    public static class Crystal extends Tile {
-        /**
-         * See {@link component.Tile#Tile(BufferedImage, BufferedImage, boolean, double, boolean, int, int)}
-         */
-        public Crystal() {
-            super(null, null, false, -1, true, -1, 0);
-            animator = new Animator(new SpriteSheet(50, 50, Loader.loadTexture("/textures/tiles/crystal.png")), 2);
-        }
-        
-        /**
-         * @see component.Tile#getItem()
-         */
-        @Override
-        public Item getItem() {
-            return null;
-        }
+    public boolean canCollapse() {
+        return type.getStrength() > -1;
     }
     
     /**
-     * A class for grass. Grass cannot collapse and gives a {@link component.Item.MudItem} when broken.
-     * Grass can fall and appears at the very top of the ground.
-     * @author Spencer Yoder
+     * @return whether or not this Tile is a fluid, which flows instead of falling
+     * @see model.TileManager#tick()
      */
-    public static class GrassTile extends Tile {
-        /**
-         * See {@link component.Tile#Tile(BufferedImage, BufferedImage, boolean, double, boolean, int, int)}
-         */
-        public GrassTile() {
-            super(tileSheet.getSprite(1, 0), lockedSheet.getSprite(1, 0), true, .5, true, -1, 4);
-        }
-
-        /**
-         * @see component.Tile#getItem()
-         */
-        @Override
-        public Item getItem() {
-            return new Item.MudItem(x, y);
-        }
+    public boolean isFluid() {
+        return type.isFluid();
     }
     
     /**
-     * A class for stone. Stone appears under dirt and has the same properties as dirt and grass
-     * with a longer break time.
-     * @author Spencer Yoder
+     * @return how brightly this Tile shines, from 0 (no light) to {@link model.LightMap#MAX_LIGHT}
+     * @see model.LightMap
      */
-    public static class StoneTile extends Tile {
-        /**
-         * See {@link component.Tile#Tile(BufferedImage, BufferedImage, boolean, double, boolean, int, int)}
-         */
-        public StoneTile() {
-            super(tileSheet.getSprite(2, 0), lockedSheet.getSprite(2, 0), true, 1, true, -1, 6);
-        }
-
-        /**
-         * @see component.Tile#getItem()
-         */
-        @Override
-        public Item getItem() {
-            return new Item.StoneItem(x, y);
-        }
+    public int getLight() {
+        return type.getLight();
     }
     
     /**
-     * A class for dirt. Dirt appears below grass and has the same properties.
-     * @author Spencer Yoder
+     * @return how many Tiles can be above this one before it collapses (-1 if it cannot collapse)
+     * @see model.TileManager#tick()
      */
-    public static class DirtTile extends Tile {
-        public DirtTile() {
-            super(tileSheet.getSprite(3, 0), lockedSheet.getSprite(3, 0), true, .5, true, -1, 4);
-        }
+    public int getStrength() {
+        return type.getStrength();
+    }
 
-        /* (non-Javadoc)
-         * @see component.Tile#getItem()
-         */
-        @Override
-        public Item getItem() {
-            return new Item.MudItem(x, y);
-        }
+    /**
+     * @return The amount of time (in seconds) it takes this tile to be broken by the mouse
+     */
+    public double getBreakTime() {
+        return type.getBreakTime();
+    }
+
+    /**
+     * @return whether or not this Tile can be broken by the mouse
+     */
+    public boolean canBreak() {
+        return type.canBreak();
     }
     
     /**
-     * A class for logs. Meant to emulate Minecraft and similar games wherein logs of trees
-     * are broken and yield wood for crafting
-     * @author Spencer Yoder
+     * The behavior of this tile when it is right clicked
      */
-    public static class LogTile extends Tile {
-        /**
-         * See {@link component.Tile#Tile(BufferedImage, BufferedImage, boolean, double, boolean, int, int)}
-         */
-        public LogTile() {
-            super(tileSheet.getSprite(4, 0), lockedSheet.getSprite(4, 0), true, 0.7, true, 10, 3);
-        }
-
-        /**
-         * @see component.Tile#getItem()
-         */
-        @Override
-        public Item getItem() {
-            return new Item.ScaffoldItem(x, y);
-        }
+    public void onRightClick() {
+        //Override if behavior exists, otherwise, this method does nothing
     }
     
     /**
-     * As of now, the only Tile that can collapse under the weight of other tiles
-     * @author Spencer Yoder
+     * @return a String representation of this Tile for use in debugging
      */
-    public static class ScaffoldTile extends Tile {
-        /**
-         * See {@link component.Tile#Tile(BufferedImage, BufferedImage, boolean, double, boolean, int, int)}
-         */
-        public ScaffoldTile() {
-            super(tileSheet.getSprite(5, 0), lockedSheet.getSprite(5, 0), true, 0.3, true, 3, 10);
-        }
-
-        /**
-         * @see component.Tile#getItem()
-         */
-        @Override
-        public Item getItem() {
-            return new Item.ScaffoldItem(x, y);
-        }
+    @Override
+    public String toString() {
+        return type.getName();
     }
 }
@@ -0,0 +1,311 @@
+/**
+ * 
+ */
+package component;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import model.LightMap;
+import model.TextureCache;
+import model.TextureCache.Texture;
+import view.SpriteSheet;
+
+/**
+ * A kind of Tile. The kinds are not written in code but read once, when the game starts, from
+ * {@link component.TileType#PATH}, which has one line for each kind. Every Tile of a kind shares its TileType,
+ * which holds everything that does not change from Tile to Tile (how it breaks, falls and collapses, its textures,
+ * and the Item it drops), so adding a kind of Tile only takes a new line.
+ * <p>
+ * Each kind has an id, which is what saved worlds store for it, and a name, which is how code refers to the kinds
+ * it needs to know about (see {@link component.TileType#get(String)}).
+ */
+public class TileType {
+    /** The path of the file the kinds are read from */
+    public static final String PATH = "/data/tiles.txt";
+    /** The largest id a kind can have (saved worlds store ids as bytes) */
+    public static final int MAX_ID = Byte.MAX_VALUE;
+    /** The sheet of textures for tiles that are editable (in the range of the tower) */
+    private static final Texture TILE_SHEET = TextureCache.get("/textures/tiles/tile_sheet.png");
+    /** The sheet of textures for tiles that are not editable */
+    private static final Texture LOCKED_SHEET = TextureCache.get("/textures/tiles/locked_tile_sheet.png");
+    /** Every TileType, indexed by id (null for ids no kind has) */
+    private static TileType[] types = load();
+
+    /** The Crystal at the top of the tower */
+    public static final TileType CRYSTAL = get("crystal");
+    /** Grass, which covers the ground */
+    public static final TileType GRASS = get("grass");
+    /** Dirt, which is under the grass */
+    public static final TileType DIRT = get("dirt");
+    /** Stone, which is under the dirt */
+    public static final TileType STONE = get("stone");
+    /** Scaffolding, which the tower starts with */
+    public static final TileType SCAFFOLD = get("scaffold");
+
+    /** The id of this TileType */
+    private int id;
+    /** The name of this TileType */
+    private String name;
+    /** The column of this kind's textures in the tile sheets (-1 if it is animated instead) */
+    private int sprite;
+    /** The sheet of the frames of this kind's animation (null if it is not animated) */
+    private Texture animation;
+    /** How many frames each frame of the animation lasts */
+    private double frameDuration;
+    /** Whether or not the user can break Tiles of this kind */
+    private boolean canBreak;
+    /** How long it takes the user to break a Tile of this kind (in seconds) */
+    private double breakTime;
+    /** Whether or not Tiles of this kind are affected by gravity */
+    private boolean canFall;
+    /** Whether or not Tiles of this kind are fluids */
+    private boolean fluid;
+    /** How many tiles can be above one of this kind before it collapses (-1 if it cannot collapse) */
+    private int strength;
+    /** How many tiles one of this kind can hold in place to prevent falling */
+    private int stickiness;
+    /** How brightly Tiles of this kind shine */
+    private int light;
+    /** The kind of Item Tiles of this kind drop (null if they drop nothing) */
+    private ItemType item;
+
+    /**
+     * Constructs a new TileType from one line of the file
+     * @param fields the fields of the line, in the order they are described in the file
+     * @throws IllegalArgumentException if any of the fields is not valid
+     */
+    private TileType(String[] fields) {
+        if(fields.length != 9) {
+            throw new IllegalArgumentException("Expected 9 fields but found " + fields.length);
+        }
+        id = Integer.parseInt(fields[0]);
+        if(id < 1 || id > MAX_ID) {
+            throw new IllegalArgumentException("Id " + id + " is not between 1 and " + MAX_ID);
+        }
+        name = fields[1];
+        int frames = fields[2].indexOf('@');
+        if(frames >= 0) {
+            sprite = -1;
+            animation = TextureCache.get(fields[2].substring(0, frames));
+            frameDuration = Double.parseDouble(fields[2].substring(frames + 1));
+        } else {
+            sprite = Integer.parseInt(fields[2]);
+            if(sprite < 0 || sprite >= getSheet(false).columns) {
+                throw new IllegalArgumentException("There is no texture in column " + sprite);
+            }
+        }
+        canBreak = fields[3].indexOf('b') >= 0;
+        canFall = fields[3].indexOf('f') >= 0;
+        fluid = fields[3].indexOf('w') >= 0;
+        breakTime = Double.parseDouble(fields[4]);
+        strength = Integer.parseInt(fields[5]);
+        stickiness = Integer.parseInt(fields[6]);
+        light = Integer.parseInt(fields[7]);
+        if(light < 0 || light > LightMap.MAX_LIGHT) {
+            throw new IllegalArgumentException("Light " + light + " is not between 0 and " + LightMap.MAX_LIGHT);
+        }
+        item = fields[8].equals("-") ? null : ItemType.get(fields[8]);
+    }
+
+    /**
+     * Reads every TileType from {@link component.TileType#PATH}.
+     * Blank lines and lines starting with # are skipped.
+     * @return every TileType, indexed by id
+     * @throws IllegalArgumentException if the file cannot be read, or any line of it is not valid
+     */
+    private static TileType[] load() {
+        TileType[] types = new TileType[MAX_ID + 1];
+        InputStream in = TileType.class.getResourceAsStream(PATH);
+        if(in == null) {
+            throw new IllegalArgumentException("Resource failed to load: " + PATH);
+        }
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            int number = 0;
+            for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+                number++;
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                TileType type;
+                try {
+                    type = new TileType(line.split("\\s+"));
+                } catch(IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Bad tile type on line " + number + " of " + PATH + ": "
+                            + e.getMessage());
+                }
+                if(types[type.id] != null) {
+                    throw new IllegalArgumentException("Id " + type.id + " on line " + number + " of " + PATH
+                            + " is already used by " + types[type.id].name);
+                }
+                types[type.id] = type;
+            }
+        } catch(IOException e) {
+            throw new IllegalArgumentException("Resource failed to load: " + PATH);
+        }
+        return types;
+    }
+
+    /**
+     * @param id the id of a kind of Tile
+     * @return the TileType with the given id (null if the id is 0 or no kind has it)
+     */
+    public static TileType get(int id) {
+        if(id < 0 || id >= types.length) {
+            return null;
+        }
+        return types[id];
+    }
+
+    /**
+     * @param name the name of a kind of Tile
+     * @return the TileType with the given name
+     * @throws IllegalArgumentException if no kind has the given name
+     */
+    public static TileType get(String name) {
+        for(int k = 0; k < types.length; k++) {
+            if(types[k] != null && types[k].name.equals(name)) {
+                return types[k];
+            }
+        }
+        throw new IllegalArgumentException("No tile type named " + name);
+    }
+
+    /**
+     * @return every texture Tiles are drawn with, for keeping them loaded while Tiles are in use
+     * @see model.TextureCache.Texture#acquire()
+     */
+    public static ArrayList<Texture> getTextures() {
+        ArrayList<Texture> textures = new ArrayList<Texture>();
+        textures.add(TILE_SHEET);
+        textures.add(LOCKED_SHEET);
+        for(int k = 0; k < types.length; k++) {
+            if(types[k] != null && types[k].animation != null && !textures.contains(types[k].animation)) {
+                textures.add(types[k].animation);
+            }
+        }
+        return textures;
+    }
+
+    /**
+     * @param locked whether or not the Tile is locked
+     * @return the SpriteSheet the textures of Tiles come from
+     */
+    public static SpriteSheet getSheet(boolean locked) {
+        return (locked ? LOCKED_SHEET : TILE_SHEET).getSheet(Tile.LENGTH, Tile.LENGTH, Tile.MIP_LEVELS);
+    }
+
+    /**
+     * @param locked whether or not the Tile is locked
+     * @return the texture of Tiles of this kind (null if they are animated)
+     */
+    public BufferedImage getTexture(boolean locked) {
+        return sprite < 0 ? null : getSheet(locked).getSprite(sprite, 0);
+    }
+
+    /**
+     * @return the id of this TileType
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the name of this TileType
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the column of this kind's textures in the tile sheets (-1 if it is animated)
+     */
+    public int getSprite() {
+        return sprite;
+    }
+
+    /**
+     * @return the frames of this kind's animation (null if it is not animated)
+     */
+    public SpriteSheet getAnimation() {
+        return animation == null ? null : animation.getSheet(Tile.LENGTH, Tile.LENGTH, 1);
+    }
+
+    /**
+     * @return how many frames each frame of the animation lasts
+     */
+    public double getFrameDuration() {
+        return frameDuration;
+    }
+
+    /**
+     * @return whether or not the user can break Tiles of this kind
+     */
+    public boolean canBreak() {
+        return canBreak;
+    }
+
+    /**
+     * @return how long it takes the user to break a Tile of this kind (in seconds)
+     */
+    public double getBreakTime() {
+        return breakTime;
+    }
+
+    /**
+     * @return whether or not Tiles of this kind are affected by gravity
+     */
+    public boolean canFall() {
+        return canFall;
+    }
+
+    /**
+     * @return whether or not Tiles of this kind are fluids, which flow instead of falling and cannot hold
+     * any Tiles in place
+     */
+    public boolean isFluid() {
+        return fluid;
+    }
+
+    /**
+     * @return how many tiles can be above one of this kind before it collapses (-1 if it cannot collapse)
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * @return how many tiles one of this kind can hold in place to prevent falling
+     */
+    public int getStickiness() {
+        return stickiness;
+    }
+
+    /**
+     * @return how brightly Tiles of this kind shine
+     */
+    public int getLight() {
+        return light;
+    }
+
+    /**
+     * @return the kind of Item Tiles of this kind drop (null if they drop nothing)
+     */
+    public ItemType getItem() {
+        return item;
+    }
+
+    /**
+     * @return a String representation of this TileType for debugging
+     */
+    @Override
+    public String toString() {
+        return name + " (" + id + ")";
+    }
+}
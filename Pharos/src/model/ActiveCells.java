@@ -0,0 +1,84 @@
+/**
+ * 
+ */
+package model;
+
+/**
+ * A set of cells of a grid which still need to be simulated, kept as a queue so that only those cells are
+ * visited instead of the whole grid. A cell is never in the set twice, so the queue never holds more than
+ * the whole grid and adding cells never allocates.
+ * Cells are stored as keys in the format [x][y] flattened to x * height + y.
+ */
+public class ActiveCells {
+    /** The height (in cells) of the grid */
+    private int height;
+    /** The keys of the cells in the set (a ring buffer) */
+    private int[] queue;
+    /** The position of the first key in the queue */
+    private int head;
+    /** How many keys are in the queue */
+    private int size;
+    /** Whether or not each cell is in the set */
+    private boolean[] active;
+
+    /**
+     * Constructs a new, empty ActiveCells for a grid of the given size
+     * @param width the width of the grid in cells
+     * @param height the height of the grid in cells
+     */
+    public ActiveCells(int width, int height) {
+        this.height = height;
+        queue = new int[width * height];
+        active = new boolean[width * height];
+    }
+
+    /**
+     * Adds the given cell to the end of the queue, unless it is already in the set
+     * @param i the column (x) of the cell
+     * @param j the row (y) of the cell
+     */
+    public void add(int i, int j) {
+        int key = i * height + j;
+        if(!active[key]) {
+            active[key] = true;
+            queue[(head + size++) % queue.length] = key;
+        }
+    }
+
+    /**
+     * Removes the first cell from the set
+     * @return the key of the cell (see {@link model.ActiveCells#column(int)} and {@link model.ActiveCells#row(int)})
+     * @throws IllegalStateException if the set is empty
+     */
+    public int take() {
+        if(size == 0) {
+            throw new IllegalStateException("No active cells");
+        }
+        int key = queue[head];
+        head = (head + 1) % queue.length;
+        size--;
+        active[key] = false;
+        return key;
+    }
+
+    /**
+     * @return the column (x) of the cell with the given key
+     */
+    public int column(int key) {
+        return key / height;
+    }
+
+    /**
+     * @return the row (y) of the cell with the given key
+     */
+    public int row(int key) {
+        return key % height;
+    }
+
+    /**
+     * @return how many cells are in the set
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * 
+ */
+package model;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import component.Component;
+import component.Item;
+import component.ItemType;
+import view.Camera;
+import view.DirtyRegion;
+import view.Framebuffer;
+import view.SpriteSheet;
+
+/**
+ * A class which stores the dropped Items in the world as entities.
+ * Instead of one Component per entity, the parts of the entities are kept in dense arrays (their positions,
+ * velocities, animations and hit-boxes), partitioned by {@link component.ItemType} so that everything an entity of one
+ * kind shares (its frames and the size of its hit-box) is stored once. Each part of the simulation is a loop over
+ * those arrays, so drawing thousands of entities costs one pass instead of thousands of virtual calls.
+ * <p>
+ * Entities are positioned in the world (in pixels), so they stay where they were dropped as the {@link view.Camera}
+ * pans and zooms; they are only converted to positions on screen to be drawn and picked up.
+ * <p>
+ * Removing an entity moves the last entity of its kind into its place, so the arrays stay dense.
+ * Within a kind, newer entities are drawn under older ones.
+ */
+public class EntityStore extends Component {
+    /** How many entities of each kind there is room for at first (the arrays grow when they fill up) */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The entities of each kind, indexed by the id of their ItemType (null until one is spawned) */
+    private Partition[] partitions;
+    /** Which part of the world is on screen */
+    private Camera camera;
+    /** The part of the world (in pixels) the entities stay inside */
+    private int minX, minY, maxX, maxY;
+
+    /**
+     * Constructs a new, empty EntityStore
+     * @param camera which part of the world is on screen
+     * @param minX the left edge (in pixels in the world) of the part of the world the entities stay inside
+     * @param minY the top edge of that part of the world
+     * @param maxX the right edge of that part of the world
+     * @param maxY the bottom edge of that part of the world
+     */
+    public EntityStore(Camera camera, int minX, int minY, int maxX, int maxY) {
+        super(null);
+        partitions = new Partition[ItemType.count()];
+        this.camera = camera;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Adds a dropped Item, which shoots off in the Item's direction from where the Item was placed
+     * @param item the Item which was dropped
+     */
+    public void spawn(Item item) {
+        Partition p = partitions[item.getType().getId()];
+        if(p == null) {
+            p = new Partition(item.getType());
+            partitions[item.getType().getId()] = p;
+        }
+        p.add(item.getX(), item.getY(), item.getDirection());
+    }
+
+    /**
+     * Removes the first entity whose hit-box contains the given point
+     * @param mouseX the x position of the point (in pixels on screen)
+     * @param mouseY the y position of the point (in pixels on screen)
+     * @return the kind of the entity that was removed, or null if there is no entity at the point
+     */
+    public ItemType collect(int mouseX, int mouseY) {
+        int worldX = camera.toWorldX(mouseX);
+        int worldY = camera.toWorldY(mouseY);
+        for(int k = 0; k < partitions.length; k++) {
+            Partition p = partitions[k];
+            if(p == null) {
+                continue;
+            }
+            for(int e = 0; e < p.size; e++) {
+                if(worldX >= p.x[e] && worldX < p.x[e] + p.width && worldY >= p.y[e] && worldY < p.y[e] + p.height) {
+                    p.remove(e);
+                    return p.type;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Draws every entity and then moves it, so that entities move once per frame.
+     * If the frame is being drawn into a {@link view.Framebuffer} without scaling or zoom, the frames of the entities
+     * are blended into it directly from the pixels of their SpriteSheets, one rectangle of the clip at a time so that
+     * no pixel outside the clip is blended over (see {@link view.DirtyRegion#split(java.awt.Shape)}).
+     */
+    @Override
+    public void render(Graphics g) {
+        Framebuffer framebuffer = Framebuffer.getActive();
+        Rectangle clip = g.getClipBounds();
+        Rectangle[] parts = clip == null ? null : DirtyRegion.split(g.getClip());
+        boolean direct = framebuffer != null && ((Graphics2D) g).getTransform().isIdentity() && camera.getZoom() == 1
+                && (clip == null || parts != null);
+        for(int k = 0; k < partitions.length; k++) {
+            Partition p = partitions[k];
+            if(p == null) {
+                continue;
+            }
+            p.animate();
+            if(!direct) {
+                p.draw(g, clip);
+            } else if(parts == null) {
+                p.draw(framebuffer, null);
+            } else {
+                for(int r = 0; r < parts.length; r++) {
+                    p.draw(framebuffer, parts[r]);
+                }
+            }
+            p.move();
+        }
+    }
+
+    /**
+     * @return how many entities there are
+     */
+    public int size() {
+        int size = 0;
+        for(int k = 0; k < partitions.length; k++) {
+            size += partitions[k] == null ? 0 : partitions[k].size;
+        }
+        return size;
+    }
+
+    /**
+     * Marks the area an entity covers on screen as needing to be redrawn
+     * @param x the x position of the entity (in pixels in the world)
+     * @param y the y position of the entity (in pixels in the world)
+     * @param width the width of the entity
+     * @param height the height of the entity
+     */
+    private void markDirty(int x, int y, int width, int height) {
+        int screenX = camera.toScreenX(x);
+        int screenY = camera.toScreenY(y);
+        DirtyRegion.add(screenX, screenY, camera.toScreenX(x + width) - screenX + 1,
+                camera.toScreenY(y + height) - screenY + 1);
+    }
+
+    /**
+     * The entities of one {@link component.ItemType}, stored as one array for each of their parts
+     */
+    private class Partition {
+        /** The kind of the entities */
+        private ItemType type;
+        /** The frames of the animation of this kind */
+        private BufferedImage[] frames;
+        /** The SpriteSheet the frames come from, for drawing straight into a Framebuffer */
+        private SpriteSheet sheet;
+        /** The width and height of the frames and the hit-box of this kind */
+        private int width, height;
+        /** How many entities there are */
+        private int size;
+        /** The position of the top-left corner of each entity (in pixels in the world) */
+        private int[] x, y;
+        /** The direction each entity is moving in, as the change in x and y for each unit of speed */
+        private double[] directionX, directionY;
+        /** How many pixels each entity moves in the next frame (it slows down by one each frame) */
+        private int[] speed;
+        /** How many frames each entity has been drawn for, which decides its frame of the animation */
+        private int[] age;
+
+        /**
+         * Constructs a new, empty Partition for the given kind
+         * @param type the kind of the entities
+         */
+        private Partition(ItemType type) {
+            this.type = type;
+            sheet = type.getSheet();
+            frames = new BufferedImage[type.getFrameCount()];
+            for(int f = 0; f < frames.length; f++) {
+                frames[f] = type.getFrame(f * ItemType.FRAME_DURATION);
+            }
+            width = frames[0].getWidth();
+            height = frames[0].getHeight();
+            x = new int[INITIAL_CAPACITY];
+            y = new int[INITIAL_CAPACITY];
+            directionX = new double[INITIAL_CAPACITY];
+            directionY = new double[INITIAL_CAPACITY];
+            speed = new int[INITIAL_CAPACITY];
+            age = new int[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Adds an entity, growing the arrays if they are full
+         * @param x the x position of the entity
+         * @param y the y position of the entity
+         * @param direction the direction (in radians) the entity moves in
+         */
+        private void add(int x, int y, double direction) {
+            if(size == this.x.length) {
+                int capacity = size * 2;
+                this.x = Arrays.copyOf(this.x, capacity);
+                this.y = Arrays.copyOf(this.y, capacity);
+                directionX = Arrays.copyOf(directionX, capacity);
+                directionY = Arrays.copyOf(directionY, capacity);
+                speed = Arrays.copyOf(speed, capacity);
+                age = Arrays.copyOf(age, capacity);
+            }
+            this.x[size] = x;
+            this.y[size] = y;
+            directionX[size] = Math.cos(direction);
+            directionY[size] = Math.sin(direction);
+            speed[size] = Item.SPEED;
+            age[size] = 0;
+            markDirty(x, y, width, height);
+            size++;
+        }
+
+        /**
+         * Removes the given entity by moving the last entity into its place
+         * @param e the index of the entity
+         */
+        private void remove(int e) {
+            markDirty(x[e], y[e], width, height);
+            size--;
+            x[e] = x[size];
+            y[e] = y[size];
+            directionX[e] = directionX[size];
+            directionY[e] = directionY[size];
+            speed[e] = speed[size];
+            age[e] = age[size];
+        }
+
+        /**
+         * Advances the animation of every entity by one frame, marking the ones whose frame changes as dirty
+         */
+        private void animate() {
+            for(int e = 0; e < size; e++) {
+                age[e]++;
+                if(age[e] % ItemType.FRAME_DURATION == 0) {
+                    markDirty(x[e], y[e], width, height);
+                }
+            }
+        }
+
+        /**
+         * @return the index of the current frame of the given entity's animation
+         */
+        private int frame(int e) {
+            return age[e] / ItemType.FRAME_DURATION % frames.length;
+        }
+
+        /**
+         * Draws every entity with the given Graphics, from the newest to the oldest
+         * @param g the Graphics to draw to
+         * @param clip the part of the screen which is being redrawn (null for all of it)
+         */
+        private void draw(Graphics g, Rectangle clip) {
+            for(int e = size - 1; e >= 0; e--) {
+                int screenX = camera.toScreenX(x[e]);
+                int screenY = camera.toScreenY(y[e]);
+                int screenWidth = camera.toScreenX(x[e] + width) - screenX;
+                int screenHeight = camera.toScreenY(y[e] + height) - screenY;
+                if(clip == null || clip.intersects(screenX, screenY, screenWidth, screenHeight)) {
+                    g.drawImage(frames[frame(e)], screenX, screenY, screenWidth, screenHeight, null);
+                }
+            }
+        }
+
+        /**
+         * Blends every entity straight into the given Framebuffer, from the newest to the oldest
+         * @param framebuffer the Framebuffer the frame is being drawn into
+         * @param clip the part of the Framebuffer which may be changed (null for all of it)
+         */
+        private void draw(Framebuffer framebuffer, Rectangle clip) {
+            if(clip != null && clip.isEmpty()) {
+                return;
+            }
+            int[] pixels = sheet.getPixels();
+            int stride = sheet.getStride();
+            for(int e = size - 1; e >= 0; e--) {
+                int frame = frame(e);
+                framebuffer.blend(pixels, stride, frame % sheet.columns * width, frame / sheet.columns * height,
+                        width, height, camera.toScreenX(x[e]), camera.toScreenY(y[e]), clip);
+            }
+        }
+
+        /**
+         * Moves every entity which is still moving by its speed and slows it down.
+         * An entity does not move along an axis if it would leave the world along it.
+         */
+        private void move() {
+            for(int e = 0; e < size; e++) {
+                if(speed[e] > 0) {
+                    int dx = (int) (directionX[e] * speed[e]);
+                    int dy = (int) (directionY[e] * speed[e]);
+                    int toX = x[e] + dx > maxX - width || x[e] + dx < minX ? x[e] : x[e] + dx;
+                    int toY = y[e] + dy > maxY - height || y[e] + dy < minY ? y[e] : y[e] + dy;
+                    if(toX != x[e] || toY != y[e]) {
+                        markDirty(x[e], y[e], width, height);
+                        x[e] = toX;
+                        y[e] = toY;
+                        markDirty(toX, toY, width, height);
+                    }
+                    speed[e]--;
+                }
+            }
+        }
+    }
+}
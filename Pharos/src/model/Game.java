@@ -3,13 +3,14 @@
  */
 package model;
 
-import java.awt.Canvas;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.awt.image.BufferStrategy;
 
 import assets.Assets;
 import component.Component;
@@ -17,7 +18,12 @@ import state.GameState;
 import state.MenuState;
 import state.SettingsState;
 import state.State;
+import view.CanvasRenderer;
+import view.DebugOverlay;
 import view.Display;
+import view.GameCanvas;
+import view.LayerManager;
+import view.Renderer;
 
 /**
  * The class responsible for running the entire game
@@ -27,7 +33,8 @@ import view.Display;
 public class Game implements Runnable {
     /** The {@link view.Display} for the game*/
     private Display display;
-    /** The width and height of the display window */
+    /** The logical width and height of the game, which everything in the game is placed in.
+     * The window can be any size; each frame is scaled to fit it */
     public static int width, height;
     /** The title for the Display */
     public String title;
@@ -35,10 +42,18 @@ public class Game implements Runnable {
     private Thread thread;
     /** Whether or not the game is currently running (i.e. is done initializing */
     private boolean running = false;
-    /** The {@link java.awt.image.BufferStrategy} for displaying each frame of the game */
-    private BufferStrategy bs;
-    /** The {@link java.awt.Graphics} the game will draw to */
-    private Graphics g;
+    /** Draws each frame of the game to the Display */
+    private Renderer renderer;
+    /** Whether or not only the parts of the screen that changed are redrawn each frame */
+    private boolean dirtyRendering;
+    /** The size of the render resolution compared to the logical size (1 to draw at the logical size) */
+    private double renderScale = 1;
+    /** Whether or not frames are drawn into a {@link view.Framebuffer} instead of the back buffer */
+    private boolean softwareRendering;
+    /** Shows how the game is running over the game, see {@link model.Game#toggleDebugOverlay()} */
+    private DebugOverlay debugOverlay;
+    /** Whether or not the DebugOverlay is shown when the game starts */
+    private boolean showDebugOverlay;
     
     /**
      * These Components are kept loaded in the Game for display when the game is changing States
@@ -53,6 +68,8 @@ public class Game implements Runnable {
     public static SettingsState settingsState;
     /** The state for the game part of the game */
     public static GameState gameState;
+    /** The measurements of how the game is running, which can be read with JMX tools */
+    public static GameMetrics metrics;
     
     /**
      * Constructs a new Game with the given title, width, and height
@@ -66,19 +83,76 @@ public class Game implements Runnable {
         this.title = title;
     }
     
+    /**
+     * Turns dirty rendering on or off. When it is on, each frame only redraws the parts of the screen
+     * reported to the {@link view.DirtyRegion} into a back buffer which persists between frames.
+     * Must be called before the game is started.
+     * @param dirtyRendering whether or not to use dirty rendering
+     */
+    public void setDirtyRendering(boolean dirtyRendering) {
+        this.dirtyRendering = dirtyRendering;
+    }
+    
+    /**
+     * Sets the resolution the game is drawn at, as a fraction of its logical size. Each frame is drawn into an
+     * image of that size and then scaled to the window, so a lower scale costs less to draw on slow machines
+     * or large windows. Must be called before the game is started.
+     * @param renderScale the render resolution compared to the logical size (1 to draw at the logical size)
+     * @throws IllegalArgumentException if the scale is not positive
+     */
+    public void setRenderScale(double renderScale) {
+        if(renderScale <= 0) {
+            throw new IllegalArgumentException("Render scale must be positive: " + renderScale);
+        }
+        this.renderScale = renderScale;
+    }
+    
+    /**
+     * Turns software rendering on or off. When it is on, each frame is drawn into a {@link view.Framebuffer}
+     * in memory, which the Tiles are copied into directly instead of being drawn one at a time with Java2D.
+     * Must be called before the game is started.
+     * @param softwareRendering whether or not to use software rendering
+     */
+    public void setSoftwareRendering(boolean softwareRendering) {
+        this.softwareRendering = softwareRendering;
+    }
+    
+    /**
+     * Sets whether or not the {@link view.DebugOverlay} is shown when the game starts.
+     * Must be called before the game is started.
+     * @param showDebugOverlay whether or not to show the DebugOverlay
+     */
+    public void setDebugOverlay(boolean showDebugOverlay) {
+        this.showDebugOverlay = showDebugOverlay;
+    }
+    
+    /**
+     * Shows the {@link view.DebugOverlay} if it is hidden, or hides it if it is shown (F3 in game)
+     */
+    private void toggleDebugOverlay() {
+        LayerManager.setOverlay(LayerManager.getOverlay() == null ? debugOverlay : null);
+    }
+    
     /**
      * Loads the game
      */
     private void init() {
+        metrics = GameMetrics.register();
+        debugOverlay = new DebugOverlay(metrics);
+        if(showDebugOverlay) {
+            toggleDebugOverlay();
+        }
         display = new Display(title, width, height);
-        display.getCanvas().addMouseListener(new MouseListener() {
+        final GameCanvas canvas = display.getCanvas();
+        renderer = new CanvasRenderer(canvas, width, height, renderScale, dirtyRendering, softwareRendering);
+        canvas.addMouseListener(new MouseListener() {
             @Override
             public void mouseReleased(MouseEvent e) {
-             State.getState().handleRelease(e);
+             State.getState().handleRelease(canvas.toLogical(e));
             }
             @Override
             public void mousePressed(MouseEvent e) {
-                State.getState().handlePress(e);
+                State.getState().handlePress(canvas.toLogical(e));
             }
             @Override
             public void mouseExited(MouseEvent e) {
@@ -92,20 +166,41 @@ public class Game implements Runnable {
             
             @Override
             public void mouseClicked(MouseEvent e) {
-                State.getState().handleClick(e);
+                State.getState().handleClick(canvas.toLogical(e));
             }
         });
         
-        display.getCanvas().addMouseWheelListener(new MouseWheelListener() {
+        canvas.addMouseWheelListener(new MouseWheelListener() {
             
             @Override
             public void mouseWheelMoved(MouseWheelEvent e) {
-                State.getState().handleScroll(e);
+                State.getState().handleScroll((MouseWheelEvent) canvas.toLogical(e));
             }
         });
-        menuState = new MenuState(display.getCanvas());
-        settingsState = new SettingsState(display.getCanvas());
-        gameState = new GameState(display.getCanvas());
+        
+        canvas.addKeyListener(new KeyListener() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if(e.getKeyCode() == KeyEvent.VK_F3) {
+                    toggleDebugOverlay();
+                    return;
+                }
+                State.getState().handleKeyPress(e);
+            }
+            
+            @Override
+            public void keyReleased(KeyEvent e) {
+                State.getState().handleKeyRelease(e);
+            }
+            
+            @Override
+            public void keyTyped(KeyEvent e) {
+                //Do nothing
+            }
+        });
+        menuState = new MenuState(canvas);
+        settingsState = new SettingsState(canvas);
+        gameState = new GameState(canvas);
         
         Assets.loadLoadingScreenAssets();
         loadingBackground = Assets.loadingBackground;
@@ -143,30 +238,37 @@ public class Game implements Runnable {
      * Calculate the internal state of the game
      */
     private void tick() {
+        long start = System.nanoTime();
         if(State.getState() != null) {
             State.getState().tick();
         }
+        metrics.recordTick(start, System.nanoTime() - start);
     }
     
     /**
      * Draw the game to the screen
+     * @see view.Renderer
      */
     private void render() {
-        Canvas c = display.getCanvas();
-        bs = c.getBufferStrategy();
-        if(bs == null) {
-            c.createBufferStrategy(3);
+        long start = System.nanoTime();
+        Graphics2D g = renderer.beginFrame();
+        if(g != null) {
+            renderState(g);
+            renderer.endFrame();
+            metrics.recordFrame(start, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Draws the current State, or the loading screen if the State is changing
+     * @param g the Graphics to draw to
+     */
+    private void renderState(Graphics g) {
+        if(State.getState() == null) {
+            loadingBackground.render(g);
+            loadingText.render(g);
         } else {
-            g = bs.getDrawGraphics();
-            g.clearRect(0, 0, width, height);
-            if(State.getState() == null) {
-                loadingBackground.render(g);
-                loadingText.render(g);
-            } else {
-                State.getState().render(g);
-            }
-            bs.show();
-            g.dispose();
+            State.getState().render(g);
         }
     }
     
@@ -0,0 +1,263 @@
+/**
+ * 
+ */
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import state.GameState;
+import state.State;
+
+/**
+ * A class which measures how the game is running, so that a running game can be watched with JMX tools
+ * (like JConsole) under the name {@link model.GameMetrics#NAME}.
+ * The time each tick and frame takes is recorded by the {@link model.Game}; everything else is read from the game
+ * when it is asked for, without stopping the game, so it can be a tick out of date.
+ */
+public class GameMetrics implements GameMetricsMBean {
+    /** The name the GameMetrics is registered under */
+    public static final String NAME = "pharos:type=GameMetrics";
+    /** How many of the most recent ticks and frames the percentiles are taken from (ten seconds' worth) */
+    private static final int SAMPLES = 600;
+    /** One second in nanoseconds */
+    private static final long SECOND = 1000000000L;
+
+    /** The recent ticks */
+    private Samples ticks;
+    /** The recent frames */
+    private Samples frames;
+
+    /**
+     * Constructs a new GameMetrics with nothing recorded
+     */
+    public GameMetrics() {
+        ticks = new Samples();
+        frames = new Samples();
+    }
+
+    /**
+     * Constructs a new GameMetrics and registers it with the platform's MBean server.
+     * If it cannot be registered, the game runs without it.
+     * @return the GameMetrics
+     */
+    public static GameMetrics register() {
+        GameMetrics metrics = new GameMetrics();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(NAME));
+        } catch(JMException e) {
+            Debug.println("Metrics are off: " + e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Records a tick
+     * @param start when the tick started (from {@link java.lang.System#nanoTime()})
+     * @param nanos how long the tick took (in nanoseconds)
+     */
+    public void recordTick(long start, long nanos) {
+        ticks.add(start, nanos);
+    }
+
+    /**
+     * Records a frame being drawn
+     * @param start when drawing started (from {@link java.lang.System#nanoTime()})
+     * @param nanos how long drawing took (in nanoseconds)
+     */
+    public void recordFrame(long start, long nanos) {
+        frames.add(start, nanos);
+    }
+
+    /**
+     * Copies how long the most recent ticks took into the given array without allocating anything
+     * @param nanos the array to fill, from the oldest tick to the newest (in nanoseconds)
+     * @return how many ticks were copied (fewer than the length of the array if not enough are recorded)
+     */
+    public int getRecentTicks(long[] nanos) {
+        return ticks.recent(nanos);
+    }
+
+    /**
+     * Copies how long drawing the most recent frames took into the given array without allocating anything
+     * @param nanos the array to fill, from the oldest frame to the newest (in nanoseconds)
+     * @return how many frames were copied (fewer than the length of the array if not enough are recorded)
+     */
+    public int getRecentFrames(long[] nanos) {
+        return frames.recent(nanos);
+    }
+
+    @Override
+    public int getTicksPerSecond() {
+        return ticks.countSince(System.nanoTime() - SECOND);
+    }
+
+    @Override
+    public int getFramesPerSecond() {
+        return frames.countSince(System.nanoTime() - SECOND);
+    }
+
+    @Override
+    public double getTickMillis50th() {
+        return ticks.percentile(50);
+    }
+
+    @Override
+    public double getTickMillis95th() {
+        return ticks.percentile(95);
+    }
+
+    @Override
+    public double getTickMillis99th() {
+        return ticks.percentile(99);
+    }
+
+    @Override
+    public double getRenderMillis50th() {
+        return frames.percentile(50);
+    }
+
+    @Override
+    public double getRenderMillis95th() {
+        return frames.percentile(95);
+    }
+
+    @Override
+    public double getRenderMillis99th() {
+        return frames.percentile(99);
+    }
+
+    @Override
+    public int getTileCount() {
+        TileManager tiles = getTileManager();
+        return tiles == null ? 0 : tiles.getTileCount();
+    }
+
+    @Override
+    public int getItemCount() {
+        GameState game = Game.gameState;
+        EntityStore entities = game == null ? null : game.getEntities();
+        return entities == null ? 0 : entities.size();
+    }
+
+    @Override
+    public int getLayerCount() {
+        State state = State.getState();
+        return state == null ? 0 : state.getLayerManager().size();
+    }
+
+    @Override
+    public int getTemporaryLayerCount() {
+        State state = State.getState();
+        return state == null ? 0 : state.getLayerManager().getTemporaryCount();
+    }
+
+    @Override
+    public int getMouseWatcherCount() {
+        State state = State.getState();
+        return state == null ? 0 : state.getMouseWatcher().size();
+    }
+
+    @Override
+    public int getTemporaryMouseWatcherCount() {
+        State state = State.getState();
+        return state == null ? 0 : state.getMouseWatcher().getTemporaryCount();
+    }
+
+    @Override
+    public int getResidentChunkCount() {
+        TileManager tiles = getTileManager();
+        return tiles == null ? 0 : tiles.getResidentChunkCount();
+    }
+
+    @Override
+    public long getTextureBytes() {
+        return TextureCache.getResidentBytes();
+    }
+
+    @Override
+    public int getTileWorkCarriedOver() {
+        TileManager tiles = getTileManager();
+        return tiles == null ? 0 : tiles.getScheduler().getCarriedOverCount();
+    }
+
+    @Override
+    public String getTileWorkReport() {
+        TileManager tiles = getTileManager();
+        return tiles == null ? "" : tiles.getScheduler().report();
+    }
+
+    /**
+     * @return the TileManager of the game (null if the game is not loaded)
+     */
+    private TileManager getTileManager() {
+        GameState game = Game.gameState;
+        return game == null ? null : game.getTileManager();
+    }
+
+    /**
+     * The start times and durations of the most recent ticks or frames (a ring buffer)
+     */
+    private static class Samples {
+        /** When each sample started (in nanoseconds) */
+        private long[] starts = new long[SAMPLES];
+        /** How long each sample took (in nanoseconds) */
+        private long[] durations = new long[SAMPLES];
+        /** Where the next sample goes */
+        private int next;
+        /** How many samples there are */
+        private int size;
+
+        /**
+         * Adds a sample, replacing the oldest one if the buffer is full
+         */
+        private synchronized void add(long start, long nanos) {
+            starts[next] = start;
+            durations[next] = nanos;
+            next = (next + 1) % SAMPLES;
+            size = Math.min(size + 1, SAMPLES);
+        }
+
+        /**
+         * @return how many samples started at or after the given time
+         */
+        private synchronized int countSince(long time) {
+            int count = 0;
+            for(int k = 0; k < size; k++) {
+                if(starts[k] - time >= 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Copies the durations of the most recent samples into the given array, from the oldest to the newest
+         * @return how many samples were copied
+         */
+        private synchronized int recent(long[] dest) {
+            int n = Math.min(size, dest.length);
+            for(int k = 0; k < n; k++) {
+                dest[k] = durations[(next - n + k + SAMPLES) % SAMPLES];
+            }
+            return n;
+        }
+
+        /**
+         * @param percent the percentile, from 0 to 100
+         * @return the duration (in milliseconds) the given percent of samples took at most (0 if there are none)
+         */
+        private synchronized double percentile(double percent) {
+            if(size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(durations, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percent / 100 * size) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * 
+ */
+package model;
+
+/**
+ * The attributes of the {@link model.GameMetrics} which can be read with JMX tools (like JConsole)
+ */
+public interface GameMetricsMBean {
+    /** @return how many ticks ran in the last second */
+    int getTicksPerSecond();
+    /** @return how many frames were drawn in the last second */
+    int getFramesPerSecond();
+    /** @return the median time (in milliseconds) a recent tick took */
+    double getTickMillis50th();
+    /** @return the time (in milliseconds) 95% of recent ticks took less than */
+    double getTickMillis95th();
+    /** @return the time (in milliseconds) 99% of recent ticks took less than */
+    double getTickMillis99th();
+    /** @return the median time (in milliseconds) drawing a recent frame took */
+    double getRenderMillis50th();
+    /** @return the time (in milliseconds) drawing 95% of recent frames took less than */
+    double getRenderMillis95th();
+    /** @return the time (in milliseconds) drawing 99% of recent frames took less than */
+    double getRenderMillis99th();
+    /** @return how many Tiles are in the world (0 if the game is not loaded) */
+    int getTileCount();
+    /** @return how many dropped Items are in the world (0 if the game is not loaded) */
+    int getItemCount();
+    /** @return how many Components the current State's {@link view.LayerManager} holds */
+    int getLayerCount();
+    /** @return how many of those Components were added temporarily and not removed yet */
+    int getTemporaryLayerCount();
+    /** @return how many Components the current State's {@link model.MouseWatcher} holds */
+    int getMouseWatcherCount();
+    /** @return how many of those Components were added temporarily and not removed yet */
+    int getTemporaryMouseWatcherCount();
+    /** @return how many chunks of Tiles have a cached image (0 if the game is not loaded) */
+    int getResidentChunkCount();
+    /** @return how many bytes the loaded textures take up, see {@link model.TextureCache} */
+    long getTextureBytes();
+    /** @return how many times Tile work ran out of time and carried over to the next tick, see
+     * {@link model.TickScheduler} (0 if the game is not loaded) */
+    int getTileWorkCarriedOver();
+    /** @return one line for each kind of Tile work with its budget and how it ran last tick, see
+     * {@link model.TickScheduler#report()} (empty if the game is not loaded) */
+    String getTileWorkReport();
+}
@@ -0,0 +1,387 @@
+/**
+ * 
+ */
+package model;
+
+/**
+ * A class which decides whether or not the Tiles in a grid are held in place.
+ * Tiles are grouped into islands of touching Tiles (above, below, left or right) with a union-find structure.
+ * An island is anchored if it contains a Tile in the bottom row of the grid or a Tile which cannot fall.
+ * Inside an anchored island, a Tile with nothing below it is held if there is a Tile with something below it
+ * within its stickiness along its row, so overhangs are held from one end and bridges from either end.
+ * Both are updated incrementally as Tiles are added and removed, so asking whether a Tile is held
+ * takes nearly constant time.
+ * Cells are stored in the format [x][y] flattened to x * height + y.
+ */
+public class IntegritySolver {
+    /** The reach of a Tile which is not within any distance of a supported Tile */
+    private static final int FAR = Integer.MAX_VALUE;
+    /** The offsets of the 8 cells around a cell in clockwise order starting above it.
+     * The even indices are the cells which touch it */
+    private static final int[] RING_X = {0, 1, 1, 1, 0, -1, -1, -1};
+    /** See {@link model.IntegritySolver#RING_X} */
+    private static final int[] RING_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    /** The width and height (in Tiles) of the grid */
+    private int width, height;
+    /** Whether or not each cell holds a Tile */
+    private boolean[] occupied;
+    /** Whether or not each cell anchors the island it is part of */
+    private boolean[] anchor;
+    /** The union-find node each occupied cell belongs to (several cells may share a node) */
+    private int[] node;
+    /** The parent of each union-find node (a root is its own parent) */
+    private int[] parent;
+    /** The size of the tree under each root node */
+    private int[] size;
+    /** The number of anchor cells in the island of each root node */
+    private int[] anchors;
+    /** The number of union-find nodes in use */
+    private int nodeCount;
+    /** How far along its row each cell is from a cell with something below it */
+    private int[] reach;
+    /** Which rows need their reach recalculated */
+    private boolean[] dirtyRows;
+    /** Whether or not any row needs its reach recalculated */
+    private boolean dirty;
+    /** The cells waiting to be visited during a flood fill */
+    private int[] queue;
+    /** The flood fill which last visited each cell */
+    private int[] seen;
+    /** The number of the current flood fill */
+    private int stamp;
+
+    /**
+     * Constructs a new IntegritySolver for an empty grid of the given size
+     * @param width the width of the grid in Tiles
+     * @param height the height of the grid in Tiles
+     */
+    public IntegritySolver(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int cells = width * height;
+        occupied = new boolean[cells];
+        anchor = new boolean[cells];
+        node = new int[cells];
+        parent = new int[cells * 2];
+        size = new int[cells * 2];
+        anchors = new int[cells * 2];
+        reach = new int[cells];
+        dirtyRows = new boolean[height];
+        queue = new int[cells];
+        seen = new int[cells];
+    }
+
+    /**
+     * Adds a Tile to the given cell, replacing any Tile already there
+     * @param i the column (x) of the cell
+     * @param j the row (y) of the cell
+     * @param fixed true if the Tile cannot fall
+     */
+    public void add(int i, int j, boolean fixed) {
+        int cell = i * height + j;
+        if(occupied[cell]) {
+            remove(i, j);
+        }
+        if(nodeCount == parent.length) {
+            rebuild();
+        }
+        occupied[cell] = true;
+        anchor[cell] = fixed || j == height - 1;
+        int n = nodeCount++;
+        node[cell] = n;
+        parent[n] = n;
+        size[n] = 1;
+        anchors[n] = anchor[cell] ? 1 : 0;
+        if(i > 0)
+            union(cell, cell - height);
+        if(i < width - 1)
+            union(cell, cell + height);
+        if(j > 0)
+            union(cell, cell - 1);
+        if(j < height - 1)
+            union(cell, cell + 1);
+        markRows(j);
+    }
+
+    /**
+     * Removes the Tile from the given cell.
+     * If the Tile was the only link between parts of its island, the island is split by flood filling
+     * from each of its neighbors, otherwise only the anchor count of the island changes.
+     * @param i the column (x) of the cell
+     * @param j the row (y) of the cell
+     */
+    public void remove(int i, int j) {
+        int cell = i * height + j;
+        if(!occupied[cell]) {
+            return;
+        }
+        int root = find(node[cell]);
+        occupied[cell] = false;
+        markRows(j);
+        if(splits(i, j)) {
+            split(i, j);
+        } else if(anchor[cell]) {
+            anchors[root]--;
+        }
+        anchor[cell] = false;
+    }
+
+    /**
+     * @param i the column (x) of the cell
+     * @param j the row (y) of the cell
+     * @param stickiness how far along its row the Tile can be from a supported Tile
+     * @return true if there is a Tile in the cell and it is held in place
+     */
+    public boolean isHeld(int i, int j, int stickiness) {
+        int cell = i * height + j;
+        if(!occupied[cell] || anchors[root(node[cell])] == 0) {
+            return false;
+        }
+        flush();
+        return reach[cell] <= stickiness;
+    }
+
+    /**
+     * @param i the column (x) of the cell
+     * @param j the row (y) of the cell
+     * @return true if there is a Tile in the cell and its island is anchored
+     */
+    public boolean isAnchored(int i, int j) {
+        int cell = i * height + j;
+        return occupied[cell] && anchors[root(node[cell])] > 0;
+    }
+    
+    /**
+     * Brings every row up to date. After this is called, and until the next add or remove, the queries
+     * of this IntegritySolver do not modify it and are safe to make from several threads at once.
+     */
+    public void flush() {
+        if(dirty) {
+            updateReach();
+        }
+    }
+
+    /**
+     * Queries use this instead of {@link model.IntegritySolver#find(int)} so that they never modify the
+     * structure. Union by size keeps the trees shallow without compression.
+     * @return the root of the given union-find node
+     */
+    private int root(int n) {
+        while(parent[n] != n) {
+            n = parent[n];
+        }
+        return n;
+    }
+
+    /**
+     * @return the root of the given union-find node, compressing the path to it
+     */
+    private int find(int n) {
+        int root = n;
+        while(parent[root] != root) {
+            root = parent[root];
+        }
+        while(parent[n] != root) {
+            int next = parent[n];
+            parent[n] = root;
+            n = next;
+        }
+        return root;
+    }
+
+    /**
+     * Joins the islands of the two given cells if both are occupied
+     */
+    private void union(int a, int b) {
+        if(!occupied[a] || !occupied[b]) {
+            return;
+        }
+        int ra = find(node[a]);
+        int rb = find(node[b]);
+        if(ra == rb) {
+            return;
+        }
+        if(size[ra] < size[rb]) {
+            int temp = ra;
+            ra = rb;
+            rb = temp;
+        }
+        parent[rb] = ra;
+        size[ra] += size[rb];
+        anchors[ra] += anchors[rb];
+    }
+
+    /**
+     * Checks whether removing the Tile at the given cell could split its island by walking the 8 cells
+     * around it. If the occupied neighbors all lie on one unbroken arc of occupied cells, they are
+     * still connected to each other without the removed cell.
+     * @param i the column (x) of the removed cell
+     * @param j the row (y) of the removed cell
+     * @return true if the island may have been split
+     */
+    private boolean splits(int i, int j) {
+        int start = -1;
+        for(int k = 0; k < RING_X.length && start < 0; k++) {
+            if(!occupied(i + RING_X[k], j + RING_Y[k])) {
+                start = k;
+            }
+        }
+        if(start < 0) {
+            return false;
+        }
+        int arcs = 0;
+        boolean inArc = false;
+        boolean touches = false;
+        for(int step = 1; step <= RING_X.length; step++) {
+            int k = (start + step) % RING_X.length;
+            if(occupied(i + RING_X[k], j + RING_Y[k])) {
+                if(!inArc) {
+                    inArc = true;
+                    touches = false;
+                }
+                if(k % 2 == 0) {
+                    touches = true;
+                }
+            } else if(inArc) {
+                inArc = false;
+                if(touches) {
+                    arcs++;
+                }
+            }
+        }
+        return arcs > 1;
+    }
+
+    /**
+     * Rebuilds the islands around a removed cell by flood filling from each of its occupied neighbors
+     * @param i the column (x) of the removed cell
+     * @param j the row (y) of the removed cell
+     */
+    private void split(int i, int j) {
+        if(nodeCount + 4 > parent.length) {
+            rebuild();
+            return;
+        }
+        stamp++;
+        for(int k = 0; k < RING_X.length; k += 2) {
+            int ni = i + RING_X[k];
+            int nj = j + RING_Y[k];
+            if(occupied(ni, nj) && seen[ni * height + nj] != stamp) {
+                flood(ni * height + nj);
+            }
+        }
+    }
+
+    /**
+     * Throws away every union-find node and flood fills every island from scratch
+     */
+    private void rebuild() {
+        nodeCount = 0;
+        stamp++;
+        for(int cell = 0; cell < occupied.length; cell++) {
+            if(occupied[cell] && seen[cell] != stamp) {
+                flood(cell);
+            }
+        }
+    }
+
+    /**
+     * Gives every cell in the island containing the given cell a single new union-find node
+     * @param start an occupied cell
+     */
+    private void flood(int start) {
+        int n = nodeCount++;
+        parent[n] = n;
+        size[n] = 1;
+        anchors[n] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        seen[start] = stamp;
+        while(head < tail) {
+            int cell = queue[head++];
+            node[cell] = n;
+            if(anchor[cell]) {
+                anchors[n]++;
+            }
+            int i = cell / height;
+            int j = cell % height;
+            if(i > 0)
+                tail = visit(cell - height, tail);
+            if(i < width - 1)
+                tail = visit(cell + height, tail);
+            if(j > 0)
+                tail = visit(cell - 1, tail);
+            if(j < height - 1)
+                tail = visit(cell + 1, tail);
+        }
+    }
+
+    /**
+     * Adds the given cell to the flood fill queue if it is occupied and has not been visited
+     * @return the new end of the queue
+     */
+    private int visit(int cell, int tail) {
+        if(occupied[cell] && seen[cell] != stamp) {
+            seen[cell] = stamp;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+
+    /**
+     * @return true if the given cell is inside the grid and holds a Tile
+     */
+    private boolean occupied(int i, int j) {
+        return i >= 0 && j >= 0 && i < width && j < height && occupied[i * height + j];
+    }
+
+    /**
+     * Marks the reach of the given row and the row above it (whose support may have changed) as out of date
+     * @param j the row (y) of the changed cell
+     */
+    private void markRows(int j) {
+        dirtyRows[j] = true;
+        if(j > 0) {
+            dirtyRows[j - 1] = true;
+        }
+        dirty = true;
+    }
+
+    /**
+     * Recalculates the reach of each out of date row with one pass in each direction
+     */
+    private void updateReach() {
+        for(int j = 0; j < height; j++) {
+            if(dirtyRows[j]) {
+                int distance = FAR;
+                for(int i = 0; i < width; i++) {
+                    distance = step(i, j, distance);
+                    reach[i * height + j] = distance;
+                }
+                distance = FAR;
+                for(int i = width - 1; i >= 0; i--) {
+                    distance = step(i, j, distance);
+                    reach[i * height + j] = Math.min(reach[i * height + j], distance);
+                }
+                dirtyRows[j] = false;
+            }
+        }
+        dirty = false;
+    }
+
+    /**
+     * @param distance the distance of the previous cell along the row from a supported cell
+     * @return the distance of the given cell along its row from a supported cell
+     */
+    private int step(int i, int j, int distance) {
+        if(!occupied(i, j)) {
+            return FAR;
+        }
+        if(j == height - 1 || occupied(i, j + 1)) {
+            return 0;
+        }
+        return distance == FAR ? FAR : distance + 1;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * 
+ */
+package model;
+
+import component.ItemType;
+
+/**
+ * A class which keeps track of the Items the player is carrying.
+ * Items are counted by kind, in an array indexed by the id of their {@link component.ItemType}, so adding and
+ * removing an Item takes the same time however many kinds there are.
+ * A few of the kinds are shown in slots (like the slots of the hotbar), each of which only refers to its ItemType;
+ * every other kind the player is carrying is still counted, in the backpack, and takes the first slot that empties.
+ */
+public class Inventory {
+    /** How many Items of each kind there are, indexed by the id of their ItemType */
+    private int[] counts;
+    /** The kind of Item shown in each slot (null if the slot is empty) */
+    private ItemType[] slots;
+    /** The slot each kind of Item is shown in, indexed by the id of its ItemType (-1 if it is not in a slot) */
+    private int[] slotOf;
+
+    /**
+     * Constructs a new, empty Inventory
+     * @param slotCount how many slots there are
+     */
+    public Inventory(int slotCount) {
+        counts = new int[ItemType.count()];
+        slots = new ItemType[slotCount];
+        slotOf = new int[ItemType.count()];
+        for(int k = 0; k < slotOf.length; k++) {
+            slotOf[k] = -1;
+        }
+    }
+
+    /**
+     * Adds the given number of Items of the given kind.
+     * If the kind is not in a slot yet, it is put in the first empty slot (if there is one).
+     * @param type the kind of Item
+     * @param amount how many to add
+     * @throws IllegalArgumentException if the amount is negative
+     */
+    public void add(ItemType type, int amount) {
+        if(amount < 0) {
+            throw new IllegalArgumentException("Cannot add " + amount + " items");
+        }
+        counts[type.getId()] += amount;
+        if(slotOf[type.getId()] == -1) {
+            for(int i = 0; i < slots.length; i++) {
+                if(slots[i] == null) {
+                    slots[i] = type;
+                    slotOf[type.getId()] = i;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes one Item of the given kind.
+     * If that was the last one, its slot is given to the first kind in the backpack, or emptied.
+     * @param type the kind of Item
+     * @return whether or not there was an Item of the given kind to remove
+     */
+    public boolean remove(ItemType type) {
+        if(counts[type.getId()] == 0) {
+            return false;
+        }
+        counts[type.getId()]--;
+        int slot = slotOf[type.getId()];
+        if(counts[type.getId()] == 0 && slot != -1) {
+            slotOf[type.getId()] = -1;
+            slots[slot] = null;
+            for(int k = 0; k < counts.length; k++) {
+                if(counts[k] > 0 && slotOf[k] == -1) {
+                    slots[slot] = ItemType.get(k);
+                    slotOf[k] = slot;
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param type the kind of Item
+     * @return how many Items of the given kind there are
+     */
+    public int getCount(ItemType type) {
+        return counts[type.getId()];
+    }
+
+    /**
+     * @param slot the index of a slot
+     * @return the kind of Item shown in the given slot (null if it is empty)
+     */
+    public ItemType getSlot(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * @return how many slots there are
+     */
+    public int getSlotCount() {
+        return slots.length;
+    }
+}
@@ -13,9 +13,28 @@ public class Launcher {
     /**
      * Starts the game
      * @param args the command-line arguments
+     * ("--dirty-rendering" to only redraw the parts of the screen that change each frame,
+     * "--render-scale=&lt;scale&gt;" to draw the game at a fraction of its size and scale it up to the window,
+     * "--software-rendering" to draw the Tiles straight into an image in memory instead of with Java2D,
+     * "--debug-overlay" to start with the overlay showing how the game is running, which F3 toggles)
      */
     public static void main(String[] args) {
         Game game = new Game("Pharos", 1500, 1000);
+        for(String arg : args) {
+            if(arg.equals("--dirty-rendering")) {
+                game.setDirtyRendering(true);
+            } else if(arg.equals("--software-rendering")) {
+                game.setSoftwareRendering(true);
+            } else if(arg.equals("--debug-overlay")) {
+                game.setDebugOverlay(true);
+            } else if(arg.startsWith("--render-scale=")) {
+                try {
+                    game.setRenderScale(Double.parseDouble(arg.substring("--render-scale=".length())));
+                } catch(IllegalArgumentException e) {
+                    Debug.println("Ignoring " + arg + ": " + e.getMessage());
+                }
+            }
+        }
         game.start();
     }
 }
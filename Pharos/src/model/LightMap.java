@@ -0,0 +1,251 @@
+/**
+ * 
+ */
+package model;
+
+import java.util.List;
+
+import component.Tile;
+
+/**
+ * A class which keeps track of how brightly lit each Tile of the grid is.
+ * Light spreads out from every Tile which gives off light (see {@link component.Tile#getLight()}), losing
+ * {@link model.LightMap#AIR_FALLOFF} levels for every empty space it passes through and
+ * {@link model.LightMap#SOLID_FALLOFF} levels for every Tile.
+ * <p>
+ * The whole grid is flooded once when the LightMap is created. After that, every change to a Tile only
+ * re-lights the area around it: the light which came from the changed Tile is removed by a flood outwards from it,
+ * and then the edge of the darkened area and the changed Tile spread their light back in.
+ * Changed Tiles are only queued when they are reported, and re-lit one at a time by
+ * {@link model.LightMap#updateNext()}, so that re-lighting can be spread over several ticks
+ * (see {@link model.TickScheduler}).
+ */
+public class LightMap implements TileListener {
+    /** The brightest light level */
+    public static final int MAX_LIGHT = 15;
+    /** How many light levels are lost crossing an empty space */
+    public static final int AIR_FALLOFF = 1;
+    /** How many light levels are lost crossing a Tile */
+    public static final int SOLID_FALLOFF = 4;
+
+    /** The grid of Tiles being lit, in the format [x][y] */
+    private Tile[][] grid;
+    /** The global column of the top-left Tile of the grid */
+    private int originX;
+    /** The global row of the top-left Tile of the grid */
+    private int originY;
+    /** The light level of each Tile in the format [x][y] */
+    private byte[][] light;
+    /** Incremented every time the light changes */
+    private int version;
+    /** Tiles whose light is spreading to their neighbors, as keys of [x][y] positions (a ring buffer) */
+    private int[] spreadQueue;
+    /** The position of the first Tile in spreadQueue */
+    private int spreadHead;
+    /** How many Tiles are in spreadQueue */
+    private int spreadSize;
+    /** Whether or not each Tile is in spreadQueue, in the format [x][y] */
+    private boolean[][] spreading;
+    /** Tiles whose light is being removed, as keys of [x][y] positions, with the level each one had */
+    private int[] removeQueue;
+    /** The old light levels of the Tiles in removeQueue */
+    private byte[] removeLevels;
+    /** The Tiles which have changed and have not been re-lit yet */
+    private ActiveCells changed;
+
+    /**
+     * Constructs a new LightMap and lights the whole grid
+     * @param grid the grid of Tiles to light in the format [x][y] (changes to it must be reported with
+     * {@link model.LightMap#tilesChanged(List)})
+     * @param originX the global column of the top-left Tile of the grid
+     * @param originY the global row of the top-left Tile of the grid
+     */
+    public LightMap(Tile[][] grid, int originX, int originY) {
+        this.grid = grid;
+        this.originX = originX;
+        this.originY = originY;
+        int size = grid.length * grid[0].length;
+        light = new byte[grid.length][grid[0].length];
+        spreadQueue = new int[size];
+        removeQueue = new int[size];
+        removeLevels = new byte[size];
+        spreading = new boolean[grid.length][grid[0].length];
+        changed = new ActiveCells(grid.length, grid[0].length);
+        for(int i = 0; i < grid.length; i++) {
+            for(int j = 0; j < grid[i].length; j++) {
+                if(grid[i][j] != null && grid[i][j].getLight() > 0) {
+                    light[i][j] = (byte) grid[i][j].getLight();
+                    enqueue(i, j);
+                }
+            }
+        }
+        spread();
+    }
+
+    /**
+     * Queues every Tile which was placed, broken, moved or collapsed to have the area around it re-lit
+     * @see model.TileListener#tilesChanged(List)
+     */
+    @Override
+    public void tilesChanged(List<TileEvent> events) {
+        for(int k = 0; k < events.size(); k++) {
+            TileEvent e = events.get(k);
+            if(e.getType() == TileEvent.Type.LOCKED || e.getType() == TileEvent.Type.UNLOCKED) {
+                continue;
+            }
+            queue(e.getX() - originX, e.getY() - originY);
+            if(e.getToX() != e.getX() || e.getToY() != e.getY()) {
+                queue(e.getToX() - originX, e.getToY() - originY);
+            }
+        }
+    }
+
+    /**
+     * Queues the given Tile to have the area around it re-lit, unless it is outside the grid or already queued
+     * @param i the column (x) of the Tile in the grid
+     * @param j the row (y) of the Tile in the grid
+     */
+    private void queue(int i, int j) {
+        if(i >= 0 && j >= 0 && i < grid.length && j < grid[0].length) {
+            changed.add(i, j);
+        }
+    }
+
+    /**
+     * Re-lights the area around the Tile which has waited longest to be re-lit
+     * @throws IllegalStateException if no Tiles are waiting
+     */
+    public void updateNext() {
+        int key = changed.take();
+        update(changed.column(key), changed.row(key));
+    }
+
+    /**
+     * @return how many changed Tiles are waiting to be re-lit
+     */
+    public int getPendingCount() {
+        return changed.size();
+    }
+
+    /**
+     * Re-lights the area around the given Tile after it has changed
+     * @param i the column (x) of the Tile in the grid
+     * @param j the row (y) of the Tile in the grid
+     */
+    public void update(int i, int j) {
+        if(i < 0 || j < 0 || i >= grid.length || j >= grid[0].length) {
+            return;
+        }
+        //Remove all the light which could have passed through the Tile
+        int removed = 0;
+        removeQueue[removed] = key(i, j);
+        removeLevels[removed++] = light[i][j];
+        light[i][j] = 0;
+        for(int head = 0; head < removed; head++) {
+            int level = removeLevels[head];
+            int x = removeQueue[head] / grid[0].length;
+            int y = removeQueue[head] % grid[0].length;
+            for(int dir = 0; dir < 4; dir++) {
+                int nx = x + Tile.DX[dir];
+                int ny = y + Tile.DY[dir];
+                if(nx < 0 || ny < 0 || nx >= grid.length || ny >= grid[0].length || light[nx][ny] == 0) {
+                    continue;
+                }
+                if(light[nx][ny] < level) {
+                    //This neighbor was lit through the removed Tile
+                    removeQueue[removed] = key(nx, ny);
+                    removeLevels[removed++] = light[nx][ny];
+                    light[nx][ny] = 0;
+                } else {
+                    //This neighbor is lit from somewhere else, so it spreads its light back
+                    enqueue(nx, ny);
+                }
+            }
+        }
+        //Every removed Tile which gives off light starts shining again, including the changed one
+        for(int k = 0; k < removed; k++) {
+            int x = removeQueue[k] / grid[0].length;
+            int y = removeQueue[k] % grid[0].length;
+            Tile t = grid[x][y];
+            if(t != null && t.getLight() > light[x][y]) {
+                light[x][y] = (byte) t.getLight();
+                enqueue(x, y);
+            }
+        }
+        spread();
+    }
+    
+    /**
+     * Adds the given Tile to the Tiles spreading their light, unless it is already waiting to
+     */
+    private void enqueue(int i, int j) {
+        if(!spreading[i][j]) {
+            spreading[i][j] = true;
+            spreadQueue[(spreadHead + spreadSize++) % spreadQueue.length] = key(i, j);
+        }
+    }
+
+    /**
+     * Spreads the light of the Tiles in spreadQueue to their neighbors until it runs out.
+     * A Tile is never in the queue twice, so the queue never holds more than the whole grid.
+     */
+    private void spread() {
+        while(spreadSize > 0) {
+            int x = spreadQueue[spreadHead] / grid[0].length;
+            int y = spreadQueue[spreadHead] % grid[0].length;
+            spreadHead = (spreadHead + 1) % spreadQueue.length;
+            spreadSize--;
+            spreading[x][y] = false;
+            for(int dir = 0; dir < 4; dir++) {
+                int nx = x + Tile.DX[dir];
+                int ny = y + Tile.DY[dir];
+                if(nx < 0 || ny < 0 || nx >= grid.length || ny >= grid[0].length) {
+                    continue;
+                }
+                int level = light[x][y] - (grid[nx][ny] == null ? AIR_FALLOFF : SOLID_FALLOFF);
+                if(level > light[nx][ny]) {
+                    light[nx][ny] = (byte) level;
+                    enqueue(nx, ny);
+                }
+            }
+        }
+        version++;
+    }
+
+    /**
+     * @return the key of the given [x][y] position in the queues
+     */
+    private int key(int i, int j) {
+        return i * grid[0].length + j;
+    }
+
+    /**
+     * @param i the column (x) of the Tile in the grid
+     * @param j the row (y) of the Tile in the grid
+     * @return the light level of the Tile, from 0 (dark) to {@link model.LightMap#MAX_LIGHT}
+     */
+    public int getLight(int i, int j) {
+        return light[i][j];
+    }
+
+    /**
+     * @return the width of the grid in Tiles
+     */
+    public int getWidth() {
+        return grid.length;
+    }
+
+    /**
+     * @return the height of the grid in Tiles
+     */
+    public int getHeight() {
+        return grid[0].length;
+    }
+
+    /**
+     * @return a number which changes every time the light changes, for knowing when to redraw it
+     */
+    public int getVersion() {
+        return version;
+    }
+}
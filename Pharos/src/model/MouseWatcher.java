@@ -77,6 +77,25 @@ public class MouseWatcher {
         }
     }
     
+    /**
+     * @return how many Components are in the LinkedList
+     */
+    public int size() {
+        int size = 0;
+        for(Node current = head; current != null; current = current.next) {
+            size++;
+        }
+        return size;
+    }
+    
+    /**
+     * @return how many of the Components were added with
+     * {@link model.MouseWatcher#temporaryAdd(ClickableComponent)} and have not been removed
+     */
+    public int getTemporaryCount() {
+        return tempList.size();
+    }
+    
     /**
      * @return a String representation of the LinkedList for debugging
      */
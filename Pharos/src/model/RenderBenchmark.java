@@ -0,0 +1,248 @@
+/**
+ * 
+ */
+package model;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+import component.Item;
+import component.ItemType;
+import state.GameState;
+import state.MenuState;
+import state.State;
+import view.Camera;
+import view.GameCanvas;
+import view.OffscreenRenderer;
+
+/**
+ * A program which draws standard scenes of the game without a display, times how long each frame takes to draw
+ * with each rendering backend, and checks the frames against saved golden images so that changes to rendering
+ * can be checked on a machine with no display.
+ * <p>
+ * Every scene is built from scratch for each backend with the same seed, and is drawn
+ * {@link model.RenderBenchmark#SETTLE_FRAMES} times before it is checked so that animations and flying Items
+ * are always in the same place.
+ * <p>
+ * The scenes whose names start with "dirty_" are drawn with dirty rendering, so that only the
+ * {@link view.DirtyRegion} is redrawn each frame. Dirty rendering redraws some changes a frame late, so they are
+ * checked against golden images drawn the same way, which every backend must match exactly.
+ */
+public class RenderBenchmark {
+    /** The scenes which are drawn */
+    private static final String[] SCENES = {"menu", "full_grid", "items", "max_tower", "dirty_items"};
+    /** How many frames each scene is drawn before it is checked and timed */
+    private static final int SETTLE_FRAMES = 30;
+    /** How many Items the items scene has */
+    private static final int ITEM_COUNT = 1000;
+    /** How many Items the dirty_items scene has (few enough that the parts of the screen they change stay apart) */
+    private static final int DIRTY_ITEM_COUNT = 12;
+    /** The seed for the directions of Items */
+    private static final long SEED = 1;
+
+    /**
+     * Runs the benchmark. Exits with status 1 if any frame does not match its golden image.
+     * @param args the command-line arguments
+     * ("--frames=&lt;n&gt;" for how many frames to time in each scene,
+     * "--golden=&lt;directory&gt;" for where the golden images are (benchmark/golden by default),
+     * "--update-golden" to save the frames as the new golden images instead of checking them,
+     * "--tolerance=&lt;n&gt;" for how many pixels may differ from the golden images,
+     * "--out=&lt;directory&gt;" to save every checked frame)
+     * @throws IOException if an image cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int frames = 300;
+        File golden = new File("benchmark/golden");
+        File out = null;
+        boolean update = false;
+        int tolerance = 0;
+        for(String arg : args) {
+            if(arg.startsWith("--frames=")) {
+                frames = Integer.parseInt(arg.substring("--frames=".length()));
+            } else if(arg.startsWith("--golden=")) {
+                golden = new File(arg.substring("--golden=".length()));
+            } else if(arg.equals("--update-golden")) {
+                update = true;
+            } else if(arg.startsWith("--tolerance=")) {
+                tolerance = Integer.parseInt(arg.substring("--tolerance=".length()));
+            } else if(arg.startsWith("--out=")) {
+                out = new File(arg.substring("--out=".length()));
+                out.mkdirs();
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        if(update) {
+            golden.mkdirs();
+        }
+
+        new Game("Pharos", 1500, 1000);
+        GameCanvas canvas = new GameCanvas(Game.width, Game.height);
+        int failures = 0;
+        for(String scene : SCENES) {
+            for(int backend = 0; backend < 2; backend++) {
+                boolean software = backend == 1;
+                String name = scene + (software ? " software" : " java2d");
+                File saves = Files.createTempDirectory("pharos").toFile();
+                OffscreenRenderer renderer = new OffscreenRenderer(Game.width, Game.height, software,
+                        scene.startsWith("dirty_"));
+                State state = createScene(scene, canvas, saves);
+                for(int i = 0; i < SETTLE_FRAMES; i++) {
+                    drawFrame(renderer, state);
+                }
+                BufferedImage frame = copy(renderer.getImage());
+                long start = System.nanoTime();
+                for(int i = 0; i < frames; i++) {
+                    drawFrame(renderer, state);
+                }
+                double millis = (System.nanoTime() - start) / 1e6 / frames;
+
+                //Unloading the scene closes its journal
+                State.setState(new MenuState(canvas));
+                State.discard(state);
+                deleteAll(saves);
+
+                String result;
+                File goldenFile = new File(golden, scene + ".png");
+                if(out != null) {
+                    ImageIO.write(frame, "png", new File(out, scene + (software ? "_software" : "_java2d") + ".png"));
+                }
+                if(update) {
+                    if(!software) {
+                        ImageIO.write(frame, "png", goldenFile);
+                    }
+                    result = "saved";
+                } else if(!goldenFile.exists()) {
+                    result = "FAILED (no golden image " + goldenFile + ")";
+                    failures++;
+                } else {
+                    int different = countDifferentPixels(frame, ImageIO.read(goldenFile));
+                    if(different > tolerance) {
+                        result = "FAILED (" + different + " pixels differ)";
+                        failures++;
+                    } else {
+                        result = "ok";
+                    }
+                }
+                System.out.printf("%-20s %8.3f ms/frame  %s%n", name, millis, result);
+            }
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Builds one of the standard scenes and makes it the current State
+     * @param scene the name of the scene
+     * @param canvas the canvas for the State
+     * @param saves an empty directory for the scene's saved world
+     * @return the State of the scene
+     * @throws IOException if the scene's world cannot be saved
+     */
+    private static State createScene(String scene, GameCanvas canvas, File saves) throws IOException {
+        Item.setSeed(SEED);
+        State.setState(new MenuState(canvas));
+        if(scene.equals("menu")) {
+            return State.getState();
+        }
+        TileManager world = new TileManager();
+        byte[][] kinds = world.exportKinds();
+        if(scene.equals("full_grid")) {
+            //Every empty space is filled with stone
+            for(int i = 0; i < kinds.length; i++) {
+                for(int j = 0; j < kinds[i].length; j++) {
+                    if(kinds[i][j] == 0) {
+                        kinds[i][j] = 3;
+                    }
+                }
+            }
+        } else if(scene.equals("max_tower")) {
+            //The crystal sits on a column of dirt reaching the top of the world
+            int column = -world.getGridX();
+            for(int j = 0; j < kinds[column].length && j + world.getGridY() <= 0; j++) {
+                kinds[column][j] = 4;
+            }
+            kinds[column][0] = 0;
+            kinds[column][1] = 1;
+        }
+        TileJournal journal = new TileJournal(saves);
+        journal.start(kinds, world.getGridX(), world.getGridY());
+        journal.close();
+
+        GameState game = new GameState(canvas, saves);
+        Game.gameState = game;
+        State.setState(game);
+        if(scene.equals("items")) {
+            //Items are dropped across the screen, which is converted to where it is in the world
+            Camera camera = game.getTileManager().getCamera();
+            for(int i = 0; i < ITEM_COUNT; i++) {
+                game.spawnItem(new Item(ItemType.MUD, camera.toWorldX(i * 37 % (Game.width - 100)),
+                        camera.toWorldY(100 + i * 53 % (Game.height - 300))));
+            }
+        } else if(scene.equals("dirty_items")) {
+            //A few Items are dropped far apart, so each frame redraws several separate parts of the screen
+            Camera camera = game.getTileManager().getCamera();
+            for(int i = 0; i < DIRTY_ITEM_COUNT; i++) {
+                game.spawnItem(new Item(ItemType.MUD, camera.toWorldX(100 + i * 421 % (Game.width - 200)),
+                        camera.toWorldY(100 + i * 277 % (Game.height - 300))));
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Draws one frame of the given State
+     * @param renderer the Renderer to draw the frame with
+     * @param state the State to draw
+     */
+    private static void drawFrame(OffscreenRenderer renderer, State state) {
+        Graphics2D g = renderer.beginFrame();
+        state.render(g);
+        renderer.endFrame();
+    }
+
+    /**
+     * @return a copy of the given image, which does not change when the original is drawn to
+     */
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        copy.getGraphics().drawImage(image, 0, 0, null);
+        return copy;
+    }
+
+    /**
+     * @return how many pixels of the two images are not the same color (every pixel if they are different sizes)
+     */
+    private static int countDifferentPixels(BufferedImage a, BufferedImage b) {
+        if(a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+            return a.getWidth() * a.getHeight();
+        }
+        int different = 0;
+        for(int y = 0; y < a.getHeight(); y++) {
+            for(int x = 0; x < a.getWidth(); x++) {
+                if((a.getRGB(x, y) & 0xffffff) != (b.getRGB(x, y) & 0xffffff)) {
+                    different++;
+                }
+            }
+        }
+        return different;
+    }
+
+    /**
+     * Deletes the given directory and everything in it
+     */
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+}
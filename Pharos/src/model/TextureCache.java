@@ -0,0 +1,278 @@
+/**
+ * 
+ */
+package model;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import view.SpriteSheet;
+
+/**
+ * A class which decides which textures are kept in memory.
+ * Every texture is reached through a {@link model.TextureCache.Texture}, which loads the texture when it is used and
+ * can let go of it later, and loads it again if it is used after that.
+ * <p>
+ * Whatever needs a texture to stay loaded (like a {@link state.State} which is loaded) acquires it, and releases
+ * it when it is done. A texture nobody has acquired stays loaded in case it is needed again, until the textures
+ * nobody has acquired take up more than the budget; then the least recently used of them are let go.
+ * Textures which are acquired are never let go, so they can take up more than the budget.
+ */
+public class TextureCache {
+    /** The budget (in bytes) if none is given with the pharos.textureBudget system property */
+    public static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+
+    /** How many bytes the loaded textures nobody has acquired may take up */
+    private static long budget = Long.getLong("pharos.textureBudget", DEFAULT_BUDGET);
+    /** Every Texture by path, from the least recently used to the most recently used */
+    private static LinkedHashMap<String, Texture> textures = new LinkedHashMap<String, Texture>(32, 0.75f, true);
+    /** How many bytes the loaded textures take up */
+    private static long residentBytes;
+
+    /**
+     * @param path the path of a texture in the form "/textures/[filename]"
+     * @return the Texture for the given path (which is not loaded until it is used)
+     */
+    public static synchronized Texture get(String path) {
+        Texture t = textures.get(path);
+        if(t == null) {
+            t = new Texture(path);
+            textures.put(path, t);
+        }
+        return t;
+    }
+
+    /**
+     * Acquires the texture with the given path and loads it
+     * @param path the path of the texture in the form "/textures/[filename]"
+     * @return the texture
+     * @see model.TextureCache.Texture#acquire()
+     */
+    public static BufferedImage acquire(String path) {
+        Texture t = get(path);
+        t.acquire();
+        return t.getImage();
+    }
+
+    /**
+     * Releases the texture with the given path
+     * @param path the path of the texture in the form "/textures/[filename]"
+     * @see model.TextureCache.Texture#release()
+     */
+    public static void release(String path) {
+        get(path).release();
+    }
+
+    /**
+     * Changes the budget, letting go of textures if they no longer fit in it
+     * @param bytes how many bytes the loaded textures nobody has acquired may take up
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public static synchronized void setBudget(long bytes) {
+        if(bytes < 0) {
+            throw new IllegalArgumentException("Texture budget cannot be negative: " + bytes);
+        }
+        budget = bytes;
+        trim(null);
+    }
+
+    /**
+     * @return how many bytes the loaded textures nobody has acquired may take up
+     */
+    public static synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return how many bytes the loaded textures take up
+     */
+    public static synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * @return one line for each loaded texture with its size and how many times it is acquired, from the least
+     * recently used to the most recently used, followed by the total
+     */
+    public static synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        for(Texture t : textures.values()) {
+            if(t.image != null) {
+                report.append(String.format("%-48s %10d bytes  %d refs%n", t.path, t.bytes, t.references));
+            }
+        }
+        report.append(String.format("%-48s %10d bytes  (budget %d)%n", "total", residentBytes, budget));
+        return report.toString();
+    }
+
+    /**
+     * Loads the given Texture if it is not loaded and marks it as the most recently used
+     * @return the texture
+     */
+    private static synchronized BufferedImage load(Texture t) {
+        textures.get(t.path);
+        if(t.image == null) {
+            t.image = Loader.loadTexture(t.path);
+            t.bytes = 4L * t.image.getWidth() * t.image.getHeight();
+            residentBytes += t.bytes;
+            trim(t);
+        }
+        return t.image;
+    }
+
+    /**
+     * Cuts the given Texture into a SpriteSheet if it has not been already
+     * @return the SpriteSheet
+     * @throws IllegalArgumentException if the Texture was cut before with different arguments
+     */
+    private static synchronized SpriteSheet cut(Texture t, int width, int height, int mipLevels) {
+        if(t.sheetWidth != 0) {
+            t.checkSheet(width, height, mipLevels);
+        }
+        if(t.sheet == null) {
+            SpriteSheet sheet = new SpriteSheet(width, height, load(t));
+            if(mipLevels > 1) {
+                sheet.generateMipmaps(mipLevels);
+                //Each level is a quarter of the one before it
+                long mipBytes = t.bytes / 3;
+                t.bytes += mipBytes;
+                residentBytes += mipBytes;
+            }
+            t.sheetWidth = width;
+            t.sheetHeight = height;
+            t.sheetMipLevels = mipLevels;
+            t.sheet = sheet;
+            trim(t);
+        }
+        return t.sheet;
+    }
+
+    /**
+     * Lets go of the least recently used textures nobody has acquired until they fit in the budget
+     * @param keep a Texture which is about to be used, so it is not let go (null for none)
+     */
+    private static void trim(Texture keep) {
+        long unused = 0;
+        for(Texture t : textures.values()) {
+            if(t.image != null && t.references == 0) {
+                unused += t.bytes;
+            }
+        }
+        ArrayList<Texture> order = new ArrayList<Texture>(textures.values());
+        for(int k = 0; k < order.size() && unused > budget; k++) {
+            Texture t = order.get(k);
+            if(t != keep && t.image != null && t.references == 0) {
+                unused -= t.bytes;
+                residentBytes -= t.bytes;
+                t.image = null;
+                t.sheet = null;
+                t.bytes = 0;
+            }
+        }
+    }
+
+    /**
+     * A texture which may or may not be loaded. Whatever uses the texture should ask for it each time it needs it
+     * instead of keeping it, so that it can be let go while it is not acquired.
+     */
+    public static class Texture {
+        /** The path of the texture */
+        private String path;
+        /** The texture (null if it is not loaded) */
+        private volatile BufferedImage image;
+        /** The texture cut into sprites (null until it is first asked for) */
+        private volatile SpriteSheet sheet;
+        /** The size of a sprite and how many mipmap levels the texture is cut with (0 until it is first cut) */
+        private int sheetWidth, sheetHeight, sheetMipLevels;
+        /** How many bytes the texture takes up while it is loaded, including its mipmaps */
+        private long bytes;
+        /** How many times the texture is acquired */
+        private int references;
+
+        /**
+         * Constructs a new Texture which is not loaded
+         * @param path the path of the texture
+         */
+        private Texture(String path) {
+            this.path = path;
+        }
+
+        /**
+         * @return the texture, which is loaded if it is not already
+         */
+        public BufferedImage getImage() {
+            BufferedImage i = image;
+            return i != null ? i : load(this);
+        }
+
+        /**
+         * @param width the width of a sprite (the same every time it is asked for)
+         * @param height the height of a sprite (the same every time it is asked for)
+         * @param mipLevels how many mipmap levels to generate, including the full size (1 for none)
+         * @return the texture cut into sprites, which is loaded if it is not already
+         * @throws IllegalArgumentException if the texture was asked for with different arguments before
+         * @see view.SpriteSheet#generateMipmaps(int)
+         */
+        public SpriteSheet getSheet(int width, int height, int mipLevels) {
+            SpriteSheet s = sheet;
+            if(s == null) {
+                return cut(this, width, height, mipLevels);
+            }
+            checkSheet(width, height, mipLevels);
+            return s;
+        }
+
+        /**
+         * Makes sure the texture is asked for the same way it was cut, since there is only one sheet for each texture
+         * @throws IllegalArgumentException if the given arguments are not the ones the texture was cut with
+         */
+        private void checkSheet(int width, int height, int mipLevels) {
+            if(width != sheetWidth || height != sheetHeight || mipLevels != sheetMipLevels) {
+                throw new IllegalArgumentException(path + " is cut into " + sheetWidth + "x" + sheetHeight
+                        + " sprites with " + sheetMipLevels + " mipmap levels, not " + width + "x" + height
+                        + " with " + mipLevels);
+            }
+        }
+
+        /**
+         * Keeps the texture from being let go until it is released as many times as it is acquired
+         */
+        public void acquire() {
+            synchronized(TextureCache.class) {
+                references++;
+                textures.get(path);
+            }
+        }
+
+        /**
+         * Undoes one {@link model.TextureCache.Texture#acquire()}. Once the texture is not acquired anymore it
+         * can be let go.
+         * @throws IllegalStateException if the texture is not acquired
+         */
+        public void release() {
+            synchronized(TextureCache.class) {
+                if(references == 0) {
+                    throw new IllegalStateException(path + " is not acquired");
+                }
+                references--;
+                textures.get(path);
+                trim(null);
+            }
+        }
+
+        /**
+         * @return whether or not the texture is loaded
+         */
+        public boolean isResident() {
+            return image != null;
+        }
+
+        /**
+         * @return the path of the texture
+         */
+        public String getPath() {
+            return path;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * 
+ */
+package model;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+import component.Tile;
+import component.TileType;
+import view.Camera;
+
+/**
+ * A program which ticks standard worlds and checks that ticking them allocates nothing, so that running the world
+ * never makes work for the garbage collector.
+ * <p>
+ * Most of the worlds come to rest, which only checks the ticks that find nothing to do. The churn world is edited
+ * every few ticks like a player would: a stone is dropped onto a sheet of water and water is poured onto it, then
+ * both are broken again, so that Tiles keep falling, settling, flowing and being re-lit. Only the ticks are
+ * measured, not the edits between them (placing a Tile is not part of a tick).
+ * <p>
+ * Every world is ticked {@link model.TickAllocationCheck#WARMUP_TICKS} times before any of them is measured, so
+ * that the JIT compiler has settled (which allocates a little the first few thousand ticks), then the bytes
+ * allocated by the ticking thread during each tick are measured with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ * <p>
+ * The JIT compiler still throws away a compiled method the first time a tick takes a branch it has never seen
+ * (for example when the thread is paused in the middle of a tick and a job runs out of time), and the JVM allocates
+ * a few hundred bytes on the ticking thread when it does. That only happens once for each branch, so each world is
+ * measured {@link model.TickAllocationCheck#ROUNDS} times and the round which allocated least is reported. A tick
+ * which allocates itself allocates in every round.
+ */
+public class TickAllocationCheck {
+    /** The worlds which are ticked */
+    private static final String[] SCENES = {"start", "full_grid", "water", "churn"};
+    /** How many ticks each world gets before it is measured */
+    private static final int WARMUP_TICKS = 10000;
+    /** How many times each world is measured */
+    private static final int ROUNDS = 3;
+    /** How many ticks pass between edits of the churn world */
+    private static final int CHURN_INTERVAL = 8;
+    /** The global column the churn world drops stone into */
+    private static final int STONE_COLUMN = -8;
+    /** The global column the churn world pours water into */
+    private static final int WATER_COLUMN = 8;
+    /** The global row the churn world drops stone and pours water from (inside the range of the tower at the start,
+     * since locked Tiles do not fall) */
+    private static final int DROP_ROW = -4;
+
+    /**
+     * Runs the check. Exits with status 1 if any world allocates more than the tolerance.
+     * @param args the command-line arguments
+     * ("--ticks=&lt;n&gt;" for how many ticks to measure in each round,
+     * "--tolerance=&lt;n&gt;" for how many bytes a world may allocate)
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int ticks = 10000;
+        long tolerance = 0;
+        for(String arg : args) {
+            if(arg.startsWith("--ticks=")) {
+                ticks = Integer.parseInt(arg.substring("--ticks=".length()));
+            } else if(arg.startsWith("--tolerance=")) {
+                tolerance = Long.parseLong(arg.substring("--tolerance=".length()));
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        new Game("Pharos", 1500, 1000);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        //The first measurement allocates, so it is made before any world is measured
+        threads.getThreadAllocatedBytes(thread);
+        TileManager[] worlds = new TileManager[SCENES.length];
+        for(int k = 0; k < SCENES.length; k++) {
+            worlds[k] = createScene(SCENES[k]);
+            for(int i = 0; i < WARMUP_TICKS; i++) {
+                if(SCENES[k].equals("churn") && i % CHURN_INTERVAL == 0) {
+                    churn(worlds[k], i / CHURN_INTERVAL);
+                }
+                worlds[k].tick();
+            }
+        }
+        int failures = 0;
+        for(int k = 0; k < SCENES.length; k++) {
+            TileManager world = worlds[k];
+            long nanos = 0;
+            long bytes = Long.MAX_VALUE;
+            for(int round = 0; round < ROUNDS && bytes > 0; round++) {
+                long roundNanos = 0;
+                long roundBytes = 0;
+                for(int i = 0; i < ticks; i++) {
+                    if(SCENES[k].equals("churn") && i % CHURN_INTERVAL == 0) {
+                        churn(world, i / CHURN_INTERVAL);
+                    }
+                    long before = threads.getThreadAllocatedBytes(thread);
+                    long start = System.nanoTime();
+                    world.tick();
+                    roundNanos += System.nanoTime() - start;
+                    roundBytes += threads.getThreadAllocatedBytes(thread) - before;
+                }
+                if(roundBytes < bytes) {
+                    nanos = roundNanos;
+                    bytes = roundBytes;
+                }
+            }
+            double micros = nanos / 1e3 / ticks;
+            String result = "ok";
+            if(bytes > tolerance) {
+                result = "FAILED";
+                failures++;
+            }
+            System.out.printf("%-12s %8.3f us/tick  %10d bytes  %s%n", SCENES[k], micros, bytes, result);
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Builds one of the standard worlds
+     * @param scene the name of the world
+     * @return the TileManager of the world
+     */
+    private static TileManager createScene(String scene) {
+        TileManager world = new TileManager();
+        if(scene.equals("start")) {
+            return world;
+        }
+        byte[][] kinds = world.exportKinds();
+        //The churn world starts as the water world
+        int kind = scene.equals("full_grid") ? 3 : 7;
+        for(int i = 0; i < kinds.length; i++) {
+            for(int j = 0; j < kinds[i].length; j++) {
+                //full_grid fills every empty space with stone; water lays a sheet of water on the ground
+                if(kinds[i][j] == 0 && (scene.equals("full_grid") || j + 1 < kinds[i].length && kinds[i][j + 1] != 0
+                        && kinds[i][j + 1] != kind)) {
+                    kinds[i][j] = (byte) kind;
+                }
+            }
+        }
+        return new TileManager(kinds);
+    }
+
+    /**
+     * Edits the churn world. Every other edit drops a stone and pours water from above the sheet of water, and
+     * the ones between break the top Tile of each of those columns, so that the world never comes to rest.
+     * @param world the churn world
+     * @param edit how many edits were made before this one
+     */
+    private static void churn(TileManager world, int edit) {
+        Camera camera = world.getCamera();
+        int[] columns = {STONE_COLUMN, WATER_COLUMN};
+        TileType[] types = {TileType.get("stone"), TileType.get("water")};
+        for(int k = 0; k < columns.length; k++) {
+            int x = camera.toScreenX(columns[k] * Tile.LENGTH + Tile.LENGTH / 2);
+            if(edit % 2 == 0) {
+                world.handleRightClick(x, camera.toScreenY(DROP_ROW * Tile.LENGTH + Tile.LENGTH / 2), types[k]);
+                continue;
+            }
+            //The top Tile which is not part of the ground
+            for(int row = DROP_ROW; row <= 0; row++) {
+                int y = camera.toScreenY(row * Tile.LENGTH + Tile.LENGTH / 2);
+                if(world.getTile(x, y) != null) {
+                    world.breakTile(x, y);
+                    break;
+                }
+            }
+        }
+    }
+}
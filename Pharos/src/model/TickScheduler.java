@@ -0,0 +1,127 @@
+/**
+ * 
+ */
+package model;
+
+import java.util.ArrayList;
+
+/**
+ * A class which shares the time of each tick between jobs which could otherwise take as long as their backlog.
+ * Each job does its work in small steps, and is given a budget of time for each tick, measured with
+ * {@link java.lang.System#nanoTime()}. Jobs run in the order they were added (most important first), each taking
+ * steps until it has no work left or its budget runs out; whatever work is left carries over to the next tick.
+ * A job with work always takes at least one step each tick, so every backlog drains eventually, and a huge one
+ * (like a cascade of collapsing Tiles) is spread over several ticks instead of stalling one frame.
+ */
+public class TickScheduler {
+    /** The jobs, from the most important to the least */
+    private ArrayList<Entry> entries;
+
+    /**
+     * Constructs a new TickScheduler with no jobs
+     */
+    public TickScheduler() {
+        entries = new ArrayList<Entry>();
+    }
+
+    /**
+     * Adds a job after every job added before it (so it is less important than all of them)
+     * @param name the name of the job, for debugging
+     * @param budget how long (in nanoseconds) the job may run each tick
+     * @param job the job
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public void add(String name, long budget, Job job) {
+        if(budget < 0) {
+            throw new IllegalArgumentException("Budget of " + name + " cannot be negative: " + budget);
+        }
+        entries.add(new Entry(name, budget, job));
+    }
+
+    /**
+     * Runs every job with work, in order, until it runs out of work or budget
+     */
+    public void run() {
+        for(int k = 0; k < entries.size(); k++) {
+            Entry e = entries.get(k);
+            long start = System.nanoTime();
+            int steps = 0;
+            while(e.job.hasWork() && (steps == 0 || System.nanoTime() - start < e.budget)) {
+                e.job.step();
+                steps++;
+            }
+            e.lastNanos = System.nanoTime() - start;
+            e.lastSteps = steps;
+            if(e.job.hasWork()) {
+                e.carriedOver++;
+            }
+        }
+    }
+
+    /**
+     * @return how many times in total a job ran out of budget and carried work over to the next tick
+     */
+    public int getCarriedOverCount() {
+        int count = 0;
+        for(int k = 0; k < entries.size(); k++) {
+            count += entries.get(k).carriedOver;
+        }
+        return count;
+    }
+
+    /**
+     * @return one line for each job with its budget, how long it ran and how many steps it took last tick, and how
+     * many times it has carried work over
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for(int k = 0; k < entries.size(); k++) {
+            Entry e = entries.get(k);
+            report.append(String.format("%-12s budget %8d ns  last %8d ns  %6d steps  carried over %d%n",
+                    e.name, e.budget, e.lastNanos, e.lastSteps, e.carriedOver));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Work which can be done a small step at a time, keeping track of what is left between ticks
+     */
+    public interface Job {
+        /**
+         * @return whether or not there is work left this tick
+         */
+        boolean hasWork();
+
+        /**
+         * Does one small step of the work. Only called when {@link model.TickScheduler.Job#hasWork()} is true.
+         */
+        void step();
+    }
+
+    /**
+     * A job with its budget and what it did
+     */
+    private static class Entry {
+        /** The name of the job */
+        private String name;
+        /** How long (in nanoseconds) the job may run each tick */
+        private long budget;
+        /** The job */
+        private Job job;
+        /** How long (in nanoseconds) the job ran last tick */
+        private long lastNanos;
+        /** How many steps the job took last tick */
+        private int lastSteps;
+        /** How many ticks the job ran out of budget with work left */
+        private int carriedOver;
+
+        /**
+         * Constructs a new Entry
+         */
+        private Entry(String name, long budget, Job job) {
+            this.name = name;
+            this.budget = budget;
+            this.job = job;
+        }
+    }
+}
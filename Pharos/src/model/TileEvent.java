@@ -0,0 +1,111 @@
+/**
+ * 
+ */
+package model;
+
+import component.Tile;
+
+/**
+ * A change to a single Tile in the grid.
+ * The ordinals of the Types are saved by the {@link model.TileJournal}, so new Types go at the end.
+ * TileEvents are reused by the {@link model.TileEventBus} once a batch has been delivered,
+ * so a {@link model.TileListener} must not hold on to them.
+ */
+public class TileEvent {
+    /**
+     * The kinds of changes that can happen to a Tile
+     */
+    public enum Type {
+        /** The Tile was placed by the user */
+        PLACED,
+        /** The Tile was broken by the user */
+        BROKEN,
+        /** The Tile fell from y to toY */
+        FELL,
+        /** The Tile collapsed under the weight of the Tiles above it */
+        COLLAPSED,
+        /** The Tile left the range of the tower */
+        LOCKED,
+        /** The Tile entered the range of the tower */
+        UNLOCKED,
+        /** The fluid Tile flowed from (x, y) to (toX, toY) */
+        FLOWED
+    }
+    
+    /** The kind of change */
+    private Type type;
+    /** The Tile which changed */
+    private Tile tile;
+    /** The global column of the Tile */
+    private int x;
+    /** The global row of the Tile (the row it fell from if it fell) */
+    private int y;
+    /** The global column the Tile flowed to if it flowed, otherwise the same as x */
+    private int toX;
+    /** The global row the Tile landed in if it fell or flowed, otherwise the same as y */
+    private int toY;
+    
+    /**
+     * Fills this TileEvent with the given change
+     */
+    void set(Type type, Tile tile, int x, int y, int toX, int toY) {
+        this.type = type;
+        this.tile = tile;
+        this.x = x;
+        this.y = y;
+        this.toX = toX;
+        this.toY = toY;
+    }
+    
+    /**
+     * @return the kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+    
+    /**
+     * @return the Tile which changed
+     */
+    public Tile getTile() {
+        return tile;
+    }
+    
+    /**
+     * @return the global column of the Tile
+     */
+    public int getX() {
+        return x;
+    }
+    
+    /**
+     * @return the global row of the Tile (the row it fell from if it fell)
+     */
+    public int getY() {
+        return y;
+    }
+    
+    /**
+     * @return the global column the Tile flowed to if it flowed, otherwise the same as {@link model.TileEvent#getX()}
+     */
+    public int getToX() {
+        return toX;
+    }
+    
+    /**
+     * @return the global row the Tile landed in if it fell or flowed, otherwise the same as
+     * {@link model.TileEvent#getY()}
+     */
+    public int getToY() {
+        return toY;
+    }
+    
+    /**
+     * @return a String representation of this TileEvent for debugging
+     */
+    @Override
+    public String toString() {
+        return type + " " + tile + " (" + x + ", " + y + ")"
+                + (toX != x || toY != y ? " -> (" + toX + ", " + toY + ")" : "");
+    }
+}
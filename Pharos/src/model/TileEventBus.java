@@ -0,0 +1,125 @@
+/**
+ * 
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import component.Tile;
+
+/**
+ * A class which collects the changes made to Tiles during a tick and delivers them to every
+ * {@link model.TileListener} as one batch, so that nothing has to rescan the grid to find out what changed.
+ * Changes can be posted from any thread; batches are delivered on the thread which calls flush.
+ * TileEvents are kept in a pool and reused from batch to batch.
+ */
+public class TileEventBus {
+    /** The TileListeners which receive each batch */
+    private ArrayList<TileListener> listeners;
+    /** The changes posted since the last flush */
+    private ArrayList<TileEvent> pending;
+    /** The batch currently being delivered (only touched by the thread which calls flush) */
+    private ArrayList<TileEvent> delivering;
+    /** A read-only view of the batch being delivered which is handed to the TileListeners */
+    private List<TileEvent> batch;
+    /** TileEvents which are free to be reused */
+    private ArrayList<TileEvent> pool;
+    /** How many changes have been posted */
+    private int postCount;
+    
+    /**
+     * Constructs a new TileEventBus with no TileListeners
+     */
+    public TileEventBus() {
+        listeners = new ArrayList<TileListener>();
+        pending = new ArrayList<TileEvent>();
+        delivering = new ArrayList<TileEvent>();
+        batch = Collections.unmodifiableList(delivering);
+        pool = new ArrayList<TileEvent>();
+    }
+    
+    /**
+     * Adds a TileListener which will receive every following batch
+     * @param listener the given TileListener
+     */
+    public void subscribe(TileListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Records a change to a Tile which did not move
+     * @see model.TileEventBus#post(TileEvent.Type, Tile, int, int, int)
+     */
+    public void post(TileEvent.Type type, Tile tile, int x, int y) {
+        post(type, tile, x, y, y);
+    }
+    
+    /**
+     * Records a change to a Tile which moved down its column
+     * @see model.TileEventBus#post(TileEvent.Type, Tile, int, int, int, int)
+     */
+    public void post(TileEvent.Type type, Tile tile, int x, int y, int toY) {
+        post(type, tile, x, y, x, toY);
+    }
+    
+    /**
+     * Records a change to a Tile to be delivered with the next batch
+     * @param type the kind of change
+     * @param tile the Tile which changed
+     * @param x the global column of the Tile
+     * @param y the global row of the Tile
+     * @param toX the global column the Tile moved to
+     * @param toY the global row the Tile moved to
+     */
+    public synchronized void post(TileEvent.Type type, Tile tile, int x, int y, int toX, int toY) {
+        TileEvent event = pool.isEmpty() ? new TileEvent() : pool.remove(pool.size() - 1);
+        event.set(type, tile, x, y, toX, toY);
+        pending.add(event);
+        postCount++;
+    }
+    
+    /**
+     * @return how many changes have been posted since the TileEventBus was created (including ones which were
+     * cleared), for knowing whether anything has changed since some earlier time
+     */
+    public synchronized int getPostCount() {
+        return postCount;
+    }
+    
+    /**
+     * Throws away every change posted since the last flush without delivering it
+     */
+    public synchronized void clear() {
+        for(int i = 0; i < pending.size(); i++) {
+            pool.add(pending.get(i));
+        }
+        pending.clear();
+    }
+    
+    /**
+     * Delivers every change posted since the last flush to each TileListener as one batch
+     */
+    public void flush() {
+        synchronized(this) {
+            if(pending.isEmpty()) {
+                return;
+            }
+            for(int i = 0; i < pending.size(); i++) {
+                delivering.add(pending.get(i));
+            }
+            pending.clear();
+        }
+        for(int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).tilesChanged(batch);
+        }
+        synchronized(this) {
+            for(int i = 0; i < delivering.size(); i++) {
+                delivering.get(i).set(null, null, 0, 0, 0, 0);
+                pool.add(delivering.get(i));
+            }
+            delivering.clear();
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/**
+ * 
+ */
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import component.Tile;
+
+/**
+ * A class which saves the grid as it changes so that the game can be recovered after a crash.
+ * Every place, break, fall and collapse is appended to a journal file as a fixed-size record.
+ * A background thread writes the records in groups every {@link model.TileJournal#COMMIT_INTERVAL}
+ * milliseconds, so a crash loses at most one group. The background thread keeps its own copy of the grid
+ * and, once enough records have been written, saves it as a snapshot and starts a new journal.
+ * The game thread never has to stop to save the grid.
+ * <p>
+ * Every record has a sequence number (its position in the journal plus the journal's base number).
+ * A snapshot stores the sequence number of the first record it does not include, so records that are
+ * already in the snapshot are skipped when recovering.
+ * <p>
+ * If the files cannot be written, the background thread stops and the TileJournal stops recording changes,
+ * so that the game carries on without autosave instead of keeping every change in memory.
+ */
+public class TileJournal implements TileListener, Runnable {
+    /** The first four bytes of a journal file */
+    private static final int JOURNAL_MAGIC = 0x50484a31;
+    /** The first four bytes of a snapshot file */
+    private static final int SNAPSHOT_MAGIC = 0x50485331;
+    /** The size of a journal file's header (the magic number and the base sequence number) */
+    private static final int HEADER_SIZE = 12;
+    /** The size of a snapshot file's header (the magic number, the sequence number, the origin and the size) */
+    private static final int SNAPSHOT_HEADER_SIZE = 28;
+    /** The size in bytes of a record: the event, the kind of Tile, and the column, row and landing row */
+    public static final int RECORD_SIZE = 8;
+    /** How long (in milliseconds) records are grouped before they are written */
+    public static final long COMMIT_INTERVAL = 500;
+    /** How many records are written before the grid is saved as a snapshot */
+    private static final int COMPACT_THRESHOLD = 4096;
+    /** Every kind of change, indexed by the number records store for it */
+    private static final TileEvent.Type[] TYPES = TileEvent.Type.values();
+
+    /** The snapshot file */
+    private File snapshotFile;
+    /** The journal file */
+    private File journalFile;
+    /** The journal file, opened for appending */
+    private FileChannel channel;
+    /** Records waiting for the next commit (guarded by this TileJournal) */
+    private ByteBuffer pending;
+    /** Records being written by the background thread */
+    private ByteBuffer writing;
+    /** The background thread */
+    private Thread thread;
+    /** Whether or not changes are being recorded and the background thread should keep running
+     * (guarded by this TileJournal) */
+    private boolean running;
+    /** Saves the last group of records when the game exits */
+    private Thread shutdownHook;
+
+    /** The background thread's copy of the kind of each Tile in the format [x][y] */
+    private byte[][] world;
+    /** The global column of the top-left Tile of the world */
+    private int originX;
+    /** The global row of the top-left Tile of the world */
+    private int originY;
+    /** The sequence number of the next record to be written */
+    private long sequence;
+    /** The sequence number of the first record not included in the snapshot */
+    private long snapshotSequence;
+
+    /**
+     * Constructs a new TileJournal which saves to the given directory
+     * @param directory the directory for the snapshot and journal files
+     */
+    public TileJournal(File directory) {
+        snapshotFile = new File(directory, "world.snapshot");
+        journalFile = new File(directory, "world.journal");
+        pending = ByteBuffer.allocate(RECORD_SIZE * 256);
+        writing = ByteBuffer.allocate(RECORD_SIZE * 256);
+    }
+
+    /**
+     * Reads the saved grid back from the snapshot and replays the journal on top of it.
+     * A record which was only partly written when the game crashed is ignored.
+     * @return the kind of each saved Tile in the format [x][y], or null if nothing has been saved
+     * @throws IOException if the saved files cannot be read, or are not what this TileJournal wrote
+     */
+    public byte[][] recover() throws IOException {
+        if(!snapshotFile.exists()) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+        try {
+            if(in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a snapshot: " + snapshotFile);
+            }
+            sequence = in.readLong();
+            originX = in.readInt();
+            originY = in.readInt();
+            int width = in.readInt();
+            int height = in.readInt();
+            //The size is checked against the file before the grid is made, so a damaged size cannot make a huge one
+            if(width <= 0 || height <= 0 || (long) width * height != snapshotFile.length() - SNAPSHOT_HEADER_SIZE) {
+                throw new IOException("Damaged snapshot: " + snapshotFile + " does not hold a " + width + "x" 
+                        + height + " grid");
+            }
+            world = new byte[width][height];
+            for(int i = 0; i < world.length; i++) {
+                in.readFully(world[i]);
+            }
+        } finally {
+            in.close();
+        }
+        if(journalFile.exists()) {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+            try {
+                if(in.readInt() != JOURNAL_MAGIC) {
+                    throw new IOException("Not a journal: " + journalFile);
+                }
+                long seq = in.readLong();
+                ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+                while(true) {
+                    in.readFully(record.array());
+                    record.clear();
+                    if(seq++ >= sequence) {
+                        apply(record);
+                        sequence = seq;
+                    }
+                }
+            } catch(EOFException e) {
+                //The end of the journal (or a record cut off by a crash)
+            } finally {
+                in.close();
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Moves the saved files out of the way so that a new world can be saved without writing over them,
+     * for when they cannot be recovered. Each file is renamed with ".broken-" and the current time added to its
+     * name, so it can still be recovered by hand.
+     * @return the files the saved files were moved to (empty if nothing was saved)
+     * @throws IOException if a saved file cannot be moved
+     */
+    public List<File> backUp() throws IOException {
+        List<File> moved = new ArrayList<File>();
+        String suffix = ".broken-" + System.currentTimeMillis();
+        File[] saved = {snapshotFile, journalFile};
+        for(int k = 0; k < saved.length; k++) {
+            if(saved[k].exists()) {
+                File backup = new File(saved[k].getPath() + suffix);
+                Files.move(saved[k].toPath(), backup.toPath());
+                moved.add(backup);
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Starts saving changes to the given grid. The grid is first saved as a snapshot by the background thread.
+     * @param kinds the kind of each Tile in the grid in the format [x][y]
+     * @param x the global column of the top-left Tile of the grid
+     * @param y the global row of the top-left Tile of the grid
+     * @throws IOException if the save directory cannot be created
+     */
+    public void start(byte[][] kinds, int x, int y) throws IOException {
+        File directory = snapshotFile.getParentFile();
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        world = kinds;
+        originX = x;
+        originY = y;
+        snapshotSequence = -1;
+        running = true;
+        thread = new Thread(this, "TileJournal");
+        thread.setDaemon(true);
+        thread.start();
+        shutdownHook = new Thread() {
+            @Override
+            public void run() {
+                close();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Writes the last group of records and stops the background thread (if it has not already stopped)
+     */
+    public void close() {
+        Thread stopping;
+        synchronized(this) {
+            if(thread == null) {
+                return;
+            }
+            stopping = thread;
+            thread = null;
+            running = false;
+            notifyAll();
+        }
+        try {
+            stopping.join();
+        } catch(InterruptedException e) {
+            //Do nothing
+        }
+        if(Thread.currentThread() != shutdownHook) {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+    }
+
+    /**
+     * Encodes each change as a record to be written with the next group.
+     * Locking and unlocking are not saved since they follow from the height of the crystal.
+     * A fluid Tile which flowed is saved as being broken where it was and placed where it went,
+     * since a record only has room for one column.
+     * @see model.TileListener#tilesChanged(List)
+     */
+    @Override
+    public synchronized void tilesChanged(List<TileEvent> events) {
+        if(!running) {
+            return;
+        }
+        for(int k = 0; k < events.size(); k++) {
+            TileEvent e = events.get(k);
+            if(e.getType() == TileEvent.Type.LOCKED || e.getType() == TileEvent.Type.UNLOCKED) {
+                continue;
+            }
+            int kind = Tile.kindOf(e.getTile());
+            if(e.getType() == TileEvent.Type.FLOWED) {
+                record(TileEvent.Type.BROKEN, kind, e.getX(), e.getY(), e.getY());
+                record(TileEvent.Type.PLACED, kind, e.getToX(), e.getToY(), e.getToY());
+            } else {
+                record(e.getType(), kind, e.getX(), e.getY(), e.getToY());
+            }
+        }
+    }
+
+    /**
+     * Adds a record to the pending records, making room for it if needed
+     * @param type the kind of change
+     * @param kind the kind of Tile which changed
+     * @param x the global column of the Tile
+     * @param y the global row of the Tile
+     * @param toY the global row the Tile landed in
+     */
+    private void record(TileEvent.Type type, int kind, int x, int y, int toY) {
+        if(pending.remaining() < RECORD_SIZE) {
+            ByteBuffer bigger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        pending.put((byte) type.ordinal());
+        pending.put((byte) kind);
+        pending.putShort((short) x);
+        pending.putShort((short) y);
+        pending.putShort((short) toY);
+    }
+
+    /**
+     * Saves a snapshot, then writes the pending records every {@link model.TileJournal#COMMIT_INTERVAL}
+     * milliseconds until the TileJournal is closed. If the files cannot be written, recording stops and the
+     * pending records are dropped.
+     */
+    @Override
+    public void run() {
+        try {
+            compact();
+            boolean more = true;
+            while(more) {
+                synchronized(this) {
+                    if(running) {
+                        wait(COMMIT_INTERVAL);
+                    }
+                    more = running;
+                }
+                commit();
+            }
+            channel.close();
+        } catch(IOException e) {
+            synchronized(this) {
+                running = false;
+                pending = ByteBuffer.allocate(RECORD_SIZE * 256);
+            }
+            Debug.println("Autosave is off, the world could not be saved: " + e.getMessage());
+            try {
+                if(channel != null) {
+                    channel.close();
+                }
+            } catch(IOException closeFailed) {
+                //Do nothing
+            }
+        } catch(InterruptedException e) {
+            //Do nothing
+        }
+    }
+
+    /**
+     * Writes the pending records to the journal as one group, forces them to disk, and applies them to the
+     * background copy of the grid
+     * @throws IOException if the journal cannot be written
+     */
+    private void commit() throws IOException {
+        synchronized(this) {
+            if(pending.position() == 0) {
+                return;
+            }
+            ByteBuffer temp = writing;
+            writing = pending;
+            pending = temp;
+            pending.clear();
+        }
+        writing.flip();
+        while(writing.hasRemaining()) {
+            channel.write(writing);
+        }
+        channel.force(false);
+        writing.flip();
+        ByteBuffer record = writing.slice();
+        for(int k = 0; k < writing.limit() / RECORD_SIZE; k++) {
+            record.position(k * RECORD_SIZE);
+            apply(record);
+            sequence++;
+        }
+        writing.clear();
+        if(sequence - snapshotSequence >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Applies one record to the copy of the grid
+     * @param record a buffer positioned at the start of the record
+     * @throws IOException if the record is damaged
+     */
+    private void apply(ByteBuffer record) throws IOException {
+        int ordinal = record.get();
+        if(ordinal < 0 || ordinal >= TYPES.length) {
+            throw new IOException("Damaged record in " + journalFile + ": no kind of change " + ordinal);
+        }
+        TileEvent.Type type = TYPES[ordinal];
+        byte kind = record.get();
+        int i = record.getShort() - originX;
+        int j = record.getShort() - originY;
+        int toJ = record.getShort() - originY;
+        if(i < 0 || i >= world.length || j < 0 || j >= world[i].length || toJ < 0 || toJ >= world[i].length) {
+            return;
+        }
+        switch(type) {
+            case PLACED:
+                world[i][j] = kind;
+                break;
+            case BROKEN:
+            case COLLAPSED:
+                world[i][j] = 0;
+                break;
+            case FELL:
+                world[i][j] = 0;
+                world[i][toJ] = kind;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Saves the copy of the grid as a snapshot and starts a new, empty journal.
+     * Each file is written beside its final location and then moved over it, so a crash leaves either the old
+     * file or the new one. A crash between the two moves is safe because the old journal's records are all
+     * older than the new snapshot.
+     * @throws IOException if the files cannot be written
+     */
+    private void compact() throws IOException {
+        File temp = new File(snapshotFile.getPath() + ".tmp");
+        FileOutputStream file = new FileOutputStream(temp);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+        try {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(originX);
+            out.writeInt(originY);
+            out.writeInt(world.length);
+            out.writeInt(world[0].length);
+            for(int i = 0; i < world.length; i++) {
+                out.write(world[i]);
+            }
+            out.flush();
+            file.getFD().sync();
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotSequence = sequence;
+
+        if(channel != null) {
+            channel.close();
+        }
+        temp = new File(journalFile.getPath() + ".tmp");
+        FileChannel header = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            buffer.putInt(JOURNAL_MAGIC);
+            buffer.putLong(sequence);
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                header.write(buffer);
+            }
+            header.force(true);
+        } finally {
+            header.close();
+        }
+        Files.move(temp.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
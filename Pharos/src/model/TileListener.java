@@ -0,0 +1,19 @@
+/**
+ * 
+ */
+package model;
+
+import java.util.List;
+
+/**
+ * Something which needs to know about changes to Tiles (e.g. renderers, caches, or sound)
+ * @see model.TileEventBus
+ */
+public interface TileListener {
+    /**
+     * Called once per tick with every change made since the last batch, in the order they were made.
+     * The list and its TileEvents are reused afterwards and must not be kept.
+     * @param events the changes
+     */
+    void tilesChanged(List<TileEvent> events);
+}
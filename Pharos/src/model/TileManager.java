@@ -3,13 +3,23 @@
  */
 package model;
 
+import java.awt.AlphaComposite;
+import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Point;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.List;
 
 import component.Animator;
 import component.Component;
 import component.Item;
 import component.Tile;
+import component.TileType;
+import view.Camera;
+import view.DirtyRegion;
+import view.Framebuffer;
 import view.LayerManager;
 import view.SpriteSheet;
 
@@ -21,102 +31,629 @@ import view.SpriteSheet;
  * @author Spencer Yoder
  */
 public class TileManager extends Component {
-    /** The TileGrid which occupies the screen 
-     * TEMPORARY: the final game is planned to contain smooth scrolling so multiple TileGrids may be
-     * on screen at a given time*/
+    /** The TileGrid which holds the world. It is larger than the screen, which shows the part of it
+     * the {@link view.Camera} is looking at */
     private TileGrid home;
     
     private Tile crystal;
-    public int crystalHeight;
+    /** The global row of the crystal */
+    private int crystalHeight;
+    /** How many rows above and below the ground (row 0) are in the range of the tower.
+     * Only changes when the crystal moves */
+    private int towerRange;
+    /** Which Tiles of the TileGrid are in the range of the tower (stored in the format [x][y]) */
+    private boolean[][] visibilityMask;
+    /** Incremented every time the visibilityMask changes */
+    private int visibilityVersion;
+    /** How brightly lit each Tile of the grid is */
+    private LightMap lightMap;
+    /** Which columns need to be settled during the current tick */
+    private boolean[] activeColumns;
+    /** How many changes had been posted when the columns were last scanned (-1 if they never have been) */
+    private int scannedPosts = -1;
+    /** The next column to settle. Columns are settled from left to right, and a pass which runs out of time
+     * carries on from here next tick */
+    private int settleColumn;
+    /** The rows (in local coordinates, in column 0) which have entered or left the range of the tower and have not
+     * been locked or unlocked yet */
+    private ActiveCells pendingRows;
+    /** The fluid Tiles which might be able to flow. Fluids which cannot are left out until something near
+     * them changes, so still fluids cost nothing */
+    private ActiveCells fluids;
+    /** Whether fluids which could flow either way flow left. Swapped every tick so that fluids spread evenly */
+    private boolean flowLeft;
+    /** How many of the fluid Tiles which might be able to flow are still to be visited this tick */
+    private int fluidsLeft;
+    /** Shares the time of each tick between locking, settling, fluids and lighting */
+    private TickScheduler scheduler;
+    /** Collects the changes made to Tiles during each tick and delivers them to TileListeners */
+    private TileEventBus events;
+    /** Scratch space for {@link model.TileManager#weight(int, int, int, long[])} while settling */
+    private long[] weightQueue;
+    /** Which part of the world is on screen. Shared by rendering and picking */
+    private Camera camera;
+    /** The cached image of the Tiles in each chunk which are not animated, in the format [x][y]
+     * (null if the chunk has no such Tiles or has not been drawn since it was last on screen) */
+    private BufferedImage[][] chunkImages;
+    /** Whether or not each chunk has changed since its image was drawn */
+    private boolean[][] chunkStale;
+    /** The mipmap level the chunk images are drawn at, which follows the zoom of the camera */
+    private int chunkLevel;
     
-    /** The width (in Tiles) of the screen */
-    public static final int TILE_GRID_WIDTH = 30;
-    /** The width (in Tiles) of the screen */
-    public static final int TILE_GRID_HEIGHT = 20;
+    /** The width (in Tiles) of the world */
+    public static final int TILE_GRID_WIDTH = 60;
+    /** The height (in Tiles) of the world */
+    public static final int TILE_GRID_HEIGHT = 40;
+    /** The width (in Tiles) of the chunks of columns which are drawn as one image */
+    private static final int CHUNK_WIDTH = 5;
+    /** The height (in Tiles) of the chunks which are drawn as one image */
+    private static final int CHUNK_HEIGHT = 5;
+    /** How many chunks away from the screen a chunk can be before its image is thrown away */
+    private static final int CHUNK_MARGIN = 2;
+    /** How many keys the scratch space for {@link model.TileManager#weight(int, int, int, long[])} starts with */
+    private static final int WEIGHT_QUEUE_LENGTH = 16;
+    /** How far (in Tiles) along its row a fluid Tile looks for somewhere lower to flow to */
+    private static final int FLOW_DISTANCE = 16;
+    /** How long (in nanoseconds) locking and unlocking rows may take each tick */
+    private static final long LOCK_BUDGET = 1000000L;
+    /** How long (in nanoseconds) settling columns may take each tick */
+    private static final long SETTLE_BUDGET = 2000000L;
+    /** How long (in nanoseconds) moving fluids may take each tick */
+    private static final long FLUID_BUDGET = 1000000L;
+    /** How long (in nanoseconds) re-lighting changed Tiles may take each tick */
+    private static final long LIGHT_BUDGET = 1000000L;
     
     /**
      * Constructs a new TileManager
      */
     public TileManager() {
+        this(null);
+    }
+    
+    /**
+     * Constructs a new TileManager from a saved grid
+     * @param kinds the kind of each Tile in the grid in the format [x][y] (null to start a new world)
+     * @see component.Tile#create(int)
+     * @throws IllegalArgumentException if the saved grid is the wrong size or does not contain the crystal
+     */
+    public TileManager(byte[][] kinds) {
         super(null);
-        home = new TileGrid(-14, -10);
-        crystal = new Tile.Crystal();
-        crystalHeight = -5;
-        for(int i = 0; i > crystalHeight; i--) {
-            home.addTile(new Tile.DirtTile(), 0, i);
+        if(kinds != null && (kinds.length != TILE_GRID_WIDTH || kinds[0].length != TILE_GRID_HEIGHT)) {
+            throw new IllegalArgumentException("Saved grid is " + kinds.length + " tiles wide, expected " + TILE_GRID_WIDTH);
+        }
+        events = new TileEventBus();
+        Tile.restartAnimations();
+        activeColumns = new boolean[TILE_GRID_WIDTH];
+        pendingRows = new ActiveCells(1, TILE_GRID_HEIGHT);
+        fluids = new ActiveCells(TILE_GRID_WIDTH, TILE_GRID_HEIGHT);
+        weightQueue = new long[WEIGHT_QUEUE_LENGTH];
+        visibilityMask = new boolean[TILE_GRID_WIDTH][TILE_GRID_HEIGHT];
+        chunkImages = new BufferedImage[TILE_GRID_WIDTH / CHUNK_WIDTH][TILE_GRID_HEIGHT / CHUNK_HEIGHT];
+        chunkStale = new boolean[TILE_GRID_WIDTH / CHUNK_WIDTH][TILE_GRID_HEIGHT / CHUNK_HEIGHT];
+        camera = new Camera(Game.width, Game.height);
+        home = new TileGrid(-29, -30, kinds);
+        camera.setBounds(home.x * Tile.LENGTH, home.y * Tile.LENGTH, 
+                (home.x + TILE_GRID_WIDTH) * Tile.LENGTH, (home.y + TILE_GRID_HEIGHT) * Tile.LENGTH);
+        //Start looking at the ground around the crystal
+        camera.moveTo(-14 * Tile.LENGTH, -10 * Tile.LENGTH);
+        for(int i = 0; i < chunkStale.length; i++) {
+            for(int j = 0; j < chunkStale[i].length; j++) {
+                chunkStale[i][j] = true;
+            }
         }
-        for(int i = 0; i > -5; i--) {
-            home.addTile(new Tile.ScaffoldTile(), 3, i);
+        for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
+            updateRow(j + home.y);
         }
-        home.addTile(crystal, 0, crystalHeight);
+        if(kinds == null) {
+            crystal = Tile.of(TileType.CRYSTAL);
+            int height = -5;
+            for(int i = 0; i > height; i--) {
+                home.addTile(Tile.of(TileType.DIRT), 0, i);
+            }
+            for(int i = 0; i > -5; i--) {
+                home.addTile(Tile.of(TileType.SCAFFOLD), 3, i);
+            }
+            setCrystalHeight(height);
+            home.addTile(crystal, 0, crystalHeight);
+        } else {
+            for(int i = 0; i < TILE_GRID_WIDTH; i++) {
+                for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
+                    if(home.grid[i][j] != null && home.grid[i][j].getType() == TileType.CRYSTAL) {
+                        crystal = home.grid[i][j];
+                        setCrystalHeight(j + home.y);
+                    }
+                }
+            }
+            if(crystal == null) {
+                throw new IllegalArgumentException("Saved grid has no crystal");
+            }
+        }
+        while(pendingRows.size() > 0) {
+            updateNextRow();
+        }
+        //The starting world is not a change
+        events.clear();
+        for(int i = 0; i < TILE_GRID_WIDTH; i++) {
+            for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
+                if(home.grid[i][j] != null && home.grid[i][j].isFluid()) {
+                    fluids.add(i, j);
+                }
+            }
+        }
+        events.subscribe(new TileListener() {
+            @Override
+            public void tilesChanged(List<TileEvent> changes) {
+                for(int k = 0; k < changes.size(); k++) {
+                    TileEvent e = changes.get(k);
+                    home.markDirty(e.getX() - home.x, e.getY() - home.y);
+                    home.markDirty(e.getToX() - home.x, e.getToY() - home.y);
+                    wakeFluids(e.getX() - home.x, e.getY() - home.y);
+                    wakeFluids(e.getToX() - home.x, e.getToY() - home.y);
+                }
+            }
+        });
+        lightMap = new LightMap(home.grid, home.x, home.y);
+        events.subscribe(lightMap);
+        scheduler = new TickScheduler();
+        scheduler.add("locks", LOCK_BUDGET, new TickScheduler.Job() {
+            @Override
+            public boolean hasWork() {
+                return pendingRows.size() > 0;
+            }
+            @Override
+            public void step() {
+                updateNextRow();
+            }
+        });
+        scheduler.add("settling", SETTLE_BUDGET, new TickScheduler.Job() {
+            @Override
+            public boolean hasWork() {
+                while(settleColumn < TILE_GRID_WIDTH && !activeColumns[settleColumn]) {
+                    settleColumn++;
+                }
+                return settleColumn < TILE_GRID_WIDTH;
+            }
+            @Override
+            public void step() {
+                activeColumns[settleColumn] = false;
+                settle(settleColumn++);
+            }
+        });
+        scheduler.add("fluids", FLUID_BUDGET, new TickScheduler.Job() {
+            @Override
+            public boolean hasWork() {
+                return fluidsLeft > 0;
+            }
+            @Override
+            public void step() {
+                fluidsLeft--;
+                flowNext();
+            }
+        });
+        scheduler.add("lighting", LIGHT_BUDGET, new TickScheduler.Job() {
+            @Override
+            public boolean hasWork() {
+                return lightMap.getPendingCount() > 0;
+            }
+            @Override
+            public void step() {
+                lightMap.updateNext();
+            }
+        });
     }
     
     /**
      * Calculates the state of every Tile on screen and adjusts accordingly
+     * A tick has two phases. First, the columns are scanned without changing anything,
+     * and each column with a Tile that needs to fall or collapse is marked. Then the marked columns are
+     * settled one at a time from left to right. Since every decision to settle a column is made from the
+     * grid as it was at the start of the tick, anything that one column causes in its neighbors is picked up by
+     * the next tick. The scan is skipped when no Tile has changed since the last one, so a world at rest costs
+     * almost nothing to tick.
+     * Fluids are not scanned. Only the fluid Tiles which might be able to flow are visited, after the columns
+     * are settled (see {@link model.TileManager#flowNext()}).
+     * <p>
+     * Locking rows, settling columns, moving fluids and re-lighting changed Tiles each have a budget of time per
+     * tick, in that order (see {@link model.TickScheduler}). Work which does not fit carries over: a pass over the
+     * columns carries on from the column it stopped at, and rows, fluids and Tiles to re-light stay queued.
      */
     public void tick() {
+        home.solver.flush();
+        //A scan only depends on the grid, so if nothing has changed since the last one it would find the same
+        int posts = events.getPostCount();
+        if(posts != scannedPosts) {
+            scannedPosts = posts;
+            scanColumns();
+        }
+        if(settleColumn >= TILE_GRID_WIDTH) {
+            settleColumn = 0;
+        }
+        flowLeft = !flowLeft;
+        fluidsLeft = fluids.size();
+        scheduler.run();
+        events.flush();
+    }
+    
+    /**
+     * Marks every column with a Tile that needs to fall or collapse
+     */
+    private void scanColumns() {
+        for(int i = 0; i < TILE_GRID_WIDTH; i++) {
+            activeColumns[i] = needsSettling(i, weightQueue);
+        }
+    }
+    
+    /**
+     * Moves the fluid Tile which has waited longest to flow by one space. A fluid Tile runs down if the space below
+     * it is empty, otherwise it runs along its row towards the nearest place it can run down from
+     * (see {@link model.TileManager#findDrop(int, int, int)}), so a pile of fluid spreads out until it lies flat.
+     * A fluid Tile which cannot move is left out until a change near it wakes it up again
+     * (see {@link model.TileManager#wakeFluids(int, int)}), and every move is reported as a
+     * {@link model.TileEvent.Type#FLOWED}, which wakes the fluids around it for the next tick.
+     */
+    private void flowNext() {
+        int key = fluids.take();
+        int i = fluids.column(key);
+        int j = fluids.row(key);
+        Tile t = home.grid[i][j];
+        if(t == null || !t.isFluid() || home.locked[i][j]) {
+            return;
+        }
+        int toI = i;
+        int toJ = j;
+        if(j < TILE_GRID_HEIGHT - 1 && home.grid[i][j + 1] == null) {
+            toJ++;
+        } else {
+            int left = findDrop(i, j, -1);
+            int right = findDrop(i, j, 1);
+            if(left > 0 && (right == 0 || left < right || left == right && flowLeft)) {
+                toI--;
+            } else if(right > 0) {
+                toI++;
+            }
+        }
+        if(toI != i || toJ != j) {
+            home.move(i, j, toI, toJ);
+            events.post(TileEvent.Type.FLOWED, t, i + home.x, j + home.y, toI + home.x, toJ + home.y);
+        }
+    }
+    
+    /**
+     * Looks along the row of a fluid Tile for the nearest empty space with an empty space below it,
+     * passing only through empty spaces
+     * @param i the column (x) of the fluid Tile in local coordinates
+     * @param j the row (y) of the fluid Tile in local coordinates
+     * @param direction -1 to look left or 1 to look right
+     * @return how many spaces away the nearest such space is (0 if there is none within
+     * {@link model.TileManager#FLOW_DISTANCE})
+     */
+    private int findDrop(int i, int j, int direction) {
+        if(j == TILE_GRID_HEIGHT - 1) {
+            return 0;
+        }
+        for(int distance = 1; distance <= FLOW_DISTANCE; distance++) {
+            int column = i + direction * distance;
+            if(column < 0 || column >= TILE_GRID_WIDTH || home.grid[column][j] != null) {
+                return 0;
+            }
+            if(home.grid[column][j + 1] == null) {
+                return distance;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Wakes up every fluid Tile which a change to the given space could let flow: the ones in its row and the row
+     * above it within {@link model.TileManager#FLOW_DISTANCE} of it
+     * @param i the column (x) of the space in local coordinates
+     * @param j the row (y) of the space in local coordinates
+     */
+    private void wakeFluids(int i, int j) {
+        for(int row = Math.max(j - 1, 0); row <= j && row < TILE_GRID_HEIGHT; row++) {
+            int start = Math.max(i - FLOW_DISTANCE, 0);
+            int end = Math.min(i + FLOW_DISTANCE, TILE_GRID_WIDTH - 1);
+            for(int column = start; column <= end; column++) {
+                Tile t = home.grid[column][row];
+                if(t != null && t.isFluid()) {
+                    fluids.add(column, row);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return how many fluid Tiles might be able to flow next tick
+     */
+    public int getActiveFluidCount() {
+        return fluids.size();
+    }
+
+    /**
+     * @return the TickScheduler which shares the time of each tick between the work Tiles need
+     */
+    public TickScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return how many Tiles there are in the grid
+     */
+    public int getTileCount() {
+        int count = 0;
         for(int i = 0; i < TILE_GRID_WIDTH; i++) {
             for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
-                Point p = convertToGlobalTileCoords(new Point(i, j));
-                Tile t = home.grid[i][j];
-                if(t != null) {
-                    if(t.willFall()) {
-                        if(j < TILE_GRID_HEIGHT - 1) {
-                            if(t == crystal) {
-                                if(p.y != 0) {
-                                    crystalHeight++;
-                                    home.grid[i][j] = null;
-                                    home.grid[i][j + 1] = t;
-                                }
-                            } else {
-                                home.grid[i][j] = null;
-                                home.grid[i][j + 1] = t;
-                            }
-                            home.link(i, j+ 1);
-                            home.link(i, j);
-                        }
-                        break;
-                    }
-                    if(t.willCollapse()) {
-                        Game.gameState.spawnItem(breakTile(i * 50, j * 50));
-                    }
-                    if(Math.abs(p.y) > Math.abs(crystalHeight)) {
-                        t.lock();
-                    } else {
-                        t.unlock();
+                if(home.grid[i][j] != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return how many chunks have a cached image
+     */
+    public int getResidentChunkCount() {
+        int count = 0;
+        for(int ci = 0; ci < chunkImages.length; ci++) {
+            for(int cj = 0; cj < chunkImages[ci].length; cj++) {
+                if(chunkImages[ci][cj] != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return how many bytes the cached images of the chunks hold
+     */
+    public long getChunkCacheBytes() {
+        long bytes = 0;
+        for(int ci = 0; ci < chunkImages.length; ci++) {
+            for(int cj = 0; cj < chunkImages[ci].length; cj++) {
+                if(chunkImages[ci][cj] != null) {
+                    bytes += 4L * chunkImages[ci][cj].getWidth() * chunkImages[ci][cj].getHeight();
+                }
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Adds a TileListener which will receive every change made to Tiles, once per tick
+     * @param listener the given TileListener
+     */
+    public void addTileListener(TileListener listener) {
+        events.subscribe(listener);
+    }
+    
+    /**
+     * Checks whether any Tile in the given column needs to fall or collapse. Does not change the grid.
+     * @param i the column (x) in local coordinates
+     * @param queue scratch space for {@link model.TileManager#weight(int, int, int, long[])} owned by the caller
+     * @return true if the column needs to be settled
+     */
+    private boolean needsSettling(int i, long[] queue) {
+        for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
+            Tile t = home.grid[i][j];
+            if(t != null && (willFall(i, j) || willCollapse(i, j, queue))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Drops every falling Tile in the given column from the bottom up so that they all land in the same tick,
+     * then removes every Tile in the column that collapses
+     * @param i the column (x) in local coordinates
+     */
+    private void settle(int i) {
+        for(int j = TILE_GRID_HEIGHT - 2; j >= 0; j--) {
+            if(willFall(i, j)) {
+                drop(i, j);
+            }
+        }
+        for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
+            Tile t = home.grid[i][j];
+            if(t != null && willCollapse(i, j, weightQueue)) {
+                home.removeTile(i, j);
+                events.post(TileEvent.Type.COLLAPSED, t, i + home.x, j + home.y);
+            }
+        }
+    }
+    
+    /**
+     * @param i the column (x) of a Tile in local coordinates
+     * @param j the row (y) of a Tile in local coordinates
+     * @return true if there is a Tile at the given position and it should fall given its state and
+     * whether or not it is held in place (fluids flow instead, see {@link model.TileManager#flowNext()})
+     * @see model.IntegritySolver#isHeld(int, int, int)
+     */
+    private boolean willFall(int i, int j) {
+        Tile t = home.grid[i][j];
+        return t != null && t.canFall() && !t.isFluid() && !home.locked[i][j] && j < TILE_GRID_HEIGHT - 1 
+                && home.grid[i][j + 1] == null && !home.solver.isHeld(i, j, t.getStickiness());
+    }
+    
+    /**
+     * A Tile which can collapse collapses when it rests on a Tile which cannot and it is supporting more Tiles
+     * than its strength.
+     * @param i the column (x) of a Tile in local coordinates
+     * @param j the row (y) of a Tile in local coordinates
+     * @param queue scratch space for {@link model.TileManager#weight(int, int, int, long[])}
+     * @return true if there is a Tile at the given position and it will collapse
+     */
+    private boolean willCollapse(int i, int j, long[] queue) {
+        Tile t = home.get(i, j);
+        if(t == null || !t.canCollapse()) {
+            return false;
+        }
+        Tile below = home.get(i, j + 1);
+        if(below == null || below.canCollapse()) {
+            return false;
+        }
+        return weight(i + home.x, j + home.y, t.getStrength(), queue) > t.getStrength();
+    }
+    
+    /**
+     * Counts the Tiles resting on the Tile at the given position: the Tiles above it, and the Tiles beside those
+     * which have nothing below them. Each Tile is counted once.
+     * @param x the global column of the Tile
+     * @param y the global row of the Tile
+     * @param limit the count to stop at
+     * @param queue scratch space which holds at least limit + 2 keys.
+     * Every Tile is counted as it is queued, so the queue never holds more than limit + 1 Tiles
+     * @return the number of Tiles the Tile is supporting, or a number greater than the limit
+     */
+    private int weight(int x, int y, int limit, long[] queue) {
+        if(queue.length < limit + 2) {
+            queue = new long[limit + 2];
+        }
+        int head = 0;
+        int tail = 0;
+        if(getNeighbor(x, y, Tile.TOP) == null) {
+            return 0;
+        }
+        queue[tail++] = tileKey(x, y - 1);
+        while(head < tail) {
+            long current = queue[head++];
+            int cx = keyX(current);
+            int cy = keyY(current);
+            for(int d = Tile.RIGHT; d < Tile.BOTTOM; d++) {
+                int nx = cx + Tile.DX[d];
+                int ny = cy + Tile.DY[d];
+                if(tileAt(nx, ny) != null && (d == Tile.TOP || getNeighbor(nx, ny, Tile.BOTTOM) == null)
+                        && !contains(queue, tail, tileKey(nx, ny))) {
+                    if(tail > limit) {
+                        return tail + 1;
                     }
+                    queue[tail++] = tileKey(nx, ny);
                 }
             }
         }
+        return tail;
+    }
+    
+    /**
+     * Packs the given Tile coordinates into one key, so that a position can be stored, compared
+     * and passed around without allocating a Point
+     * @param x the column of a Tile
+     * @param y the row of a Tile
+     * @return the key for the given position
+     * @see model.TileManager#keyX(long)
+     * @see model.TileManager#keyY(long)
+     */
+    public static long tileKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+    
+    /**
+     * @return the column packed into the given key by {@link model.TileManager#tileKey(int, int)}
+     */
+    public static int keyX(long key) {
+        return (int) (key >> 32);
+    }
+    
+    /**
+     * @return the row packed into the given key by {@link model.TileManager#tileKey(int, int)}
+     */
+    public static int keyY(long key) {
+        return (int) key;
+    }
+    
+    /**
+     * @return true if the given key is one of the first count keys in the given array
+     */
+    private static boolean contains(long[] keys, int count, long key) {
+        for(int k = 0; k < count; k++) {
+            if(keys[k] == key) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
-     * @return the given point in local tile coordinates converted to global tile coordinates
-     * (where the crystal starts at (0, 0))
+     * Finds the Tile at the given global position. Only the home grid is loaded, so positions outside it are
+     * treated as empty. All neighbor lookups go through this, so that they are the only thing to change if more
+     * grids are loaded.
+     * @param x the global column
+     * @param y the global row
+     * @return the Tile at the given position (null if it is empty or outside the home grid)
      */
-    private Point convertToGlobalTileCoords(Point localTileCoords) {
-        return new Point(localTileCoords.x + home.x, localTileCoords.y + home.y);
+    public Tile tileAt(int x, int y) {
+        return home.get(x - home.x, y - home.y);
+    }
+    
+    /**
+     * @param x the global column of a Tile
+     * @param y the global row of a Tile
+     * @param direction {@link component.Tile#RIGHT}, {@link component.Tile#TOP}, {@link component.Tile#LEFT}
+     * or {@link component.Tile#BOTTOM}
+     * @return the Tile next to the given position in the given direction (null if there is none)
+     */
+    public Tile getNeighbor(int x, int y, int direction) {
+        return tileAt(x + Tile.DX[direction], y + Tile.DY[direction]);
+    }
+    
+    /**
+     * Drops the Tile at the given position down its column until it no longer falls,
+     * then reports how far it fell.
+     * Because columns are swept from the bottom up, the Tiles below have already landed.
+     * @param i the column (x) of the Tile
+     * @param j the row (y) of the Tile
+     */
+    private void drop(int i, int j) {
+        Tile t = home.grid[i][j];
+        int row = j;
+        while(willFall(i, row)) {
+            if(t == crystal) {
+                if(row + home.y == 0) {
+                    break;
+                }
+                setCrystalHeight(crystalHeight + 1);
+            }
+            home.move(i, row, i, row + 1);
+            row++;
+        }
+        if(row != j) {
+            events.post(TileEvent.Type.FELL, t, i + home.x, j + home.y, row + home.y);
+        }
     }
     
     /**
      * Places a tile if the conditions are correct
      * @param x the x location of the mouse in pixels
      * @param y the y location of the mouse in pixels
-     * @param tile the Tile to place
+     * @param type the kind of Tile to place (null if there is nothing to place)
      * @return true if the Tile is placed correctly
      */
-    public boolean handleRightClick(int x, int y, Tile tile) {
-        Point pL = convertToLocalTileCoords(x, y);
-        Point pA = convertToGlobalTileCoords(x, y);
-        if(home.grid[pL.x][pL.y] != null) {
-            if(home.grid[pL.x][pL.y] == crystal && pL.y > 0) {
-                home.addTile(crystal, 0, --crystalHeight);
-                home.addTile(tile, pA.x, pA.y);
+    public boolean handleRightClick(int x, int y, TileType type) {
+        if(type == null) {
+            return false;
+        }
+        int i = toLocalColumn(x);
+        int j = toLocalRow(y);
+        int globalX = i + home.x;
+        int globalY = j + home.y;
+        if(home.grid[i][j] != null) {
+            if(home.grid[i][j] == crystal && j > 0) {
+                Tile tile = Tile.of(type);
+                setCrystalHeight(crystalHeight - 1);
+                home.addTile(crystal, 0, crystalHeight);
+                home.addTile(tile, globalX, globalY);
+                events.post(TileEvent.Type.PLACED, crystal, 0, crystalHeight);
+                events.post(TileEvent.Type.PLACED, tile, globalX, globalY);
                 return true;
             }
-            home.grid[pL.x][pL.y].onRightClick();
-        } else if(tile != null){
-            home.addTile(tile, pA.x, pA.y);
+            home.grid[i][j].onRightClick();
+        } else {
+            Tile tile = Tile.of(type);
+            home.addTile(tile, globalX, globalY);
+            events.post(TileEvent.Type.PLACED, tile, globalX, globalY);
             return true;
         }
         return false;
@@ -126,30 +663,43 @@ public class TileManager extends Component {
      * @return the Tile at the given x and y coordinates (in pixels)
      */
     public Tile getTile(int xPixel, int yPixel) {
-        Point p = convertToLocalTileCoords(xPixel, yPixel);
-        return home.grid[p.x][p.y];
+        return home.grid[toLocalColumn(xPixel)][toLocalRow(yPixel)];
+    }
+    
+    /**
+     * @return the local column (x) of the Tile at the given x coordinate (in pixels on screen)
+     */
+    public int toLocalColumn(int xPixel) {
+        return toGlobalColumn(xPixel) - home.x;
+    }
+    
+    /**
+     * @return the local row (y) of the Tile at the given y coordinate (in pixels on screen)
+     */
+    public int toLocalRow(int yPixel) {
+        return toGlobalRow(yPixel) - home.y;
     }
     
     /**
-     * @return the given x and y coordinates (in pixels) converted to local Tile coordinates
+     * @return the global column of the Tile at the given x coordinate (in pixels on screen)
      */
-    public Point convertToLocalTileCoords(int xPixel, int yPixel) {
-        return new Point(xPixel / Tile.LENGTH, yPixel / Tile.LENGTH);
+    public int toGlobalColumn(int xPixel) {
+        return Math.floorDiv(camera.toWorldX(xPixel), Tile.LENGTH);
     }
     
     /**
-     * @return the given Point which is in global coordinates converted to local tile coordinates
+     * @return the global row of the Tile at the given y coordinate (in pixels on screen)
+     * (where the crystal starts at row 0)
      */
-    public Point convertToLocalTileCoords(Point p) {
-        return new Point(p.x - home.x, p.y - home.y);
+    public int toGlobalRow(int yPixel) {
+        return Math.floorDiv(camera.toWorldY(yPixel), Tile.LENGTH);
     }
     
     /**
-     * @return the given x and y coordinates (in pixels) converted to global Tile coordinates
+     * @return the Camera which decides which part of the world is on screen
      */
-    public Point convertToGlobalTileCoords(int xPixel, int yPixel) {
-        Point p = convertToLocalTileCoords(xPixel, yPixel);
-        return new Point(p.x + home.x, p.y + home.y);
+    public Camera getCamera() {
+        return camera;
     }
     
     /**
@@ -159,60 +709,382 @@ public class TileManager extends Component {
      * @return the Item the Tile drops when broken
      */
     public Item breakTile(int mouseX, int mouseY) {
-        Point p = convertToLocalTileCoords(mouseX, mouseY);
-        Item item = home.grid[p.x][p.y].getItem();
-        home.grid[p.x][p.y] = null;
-        home.link(p.x, p.y);
-        return item;
+        int i = toLocalColumn(mouseX);
+        int j = toLocalRow(mouseY);
+        Tile t = home.removeTile(i, j);
+        events.post(TileEvent.Type.BROKEN, t, i + home.x, j + home.y);
+        return t.getItem((i + home.x) * Tile.LENGTH, (j + home.y) * Tile.LENGTH);
     }
     
     /**
-     * Draws all Tiles to the screen
+     * Draws the Tiles on screen.
+     * The Tiles which are not animated are drawn from a cached image of each chunk, which is redrawn only when
+     * a {@link model.TileEvent} changes it. Only the chunks on screen and inside the clip of the given Graphics
+     * are drawn, but animated Tiles on screen are always rendered so that their animations keep running.
+     * When the camera is zoomed the chunk images are scaled, and when it is zoomed out they are drawn from
+     * the smaller mipmaps of the Tile textures (see {@link view.Camera#getMipLevel(int)}).
+     * If the frame is being drawn into a {@link view.Framebuffer} without scaling, the Tiles are copied into it
+     * directly instead. The Framebuffer does not know about the clip of the Graphics, so they are copied one
+     * rectangle of the clip at a time (see {@link view.DirtyRegion#split(java.awt.Shape)}); if the clip cannot be
+     * split into rectangles, the chunk images are drawn as usual.
      */
     @Override
     public void render(Graphics g) {
-        for(int i = 0; i < TILE_GRID_WIDTH; i++) {
-            for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
-                if(home.grid[i][j] != null) {
-                    home.grid[i][j].place(i * 50, j * 50);
-                    home.grid[i][j].render(g);
+        int level = camera.getMipLevel(Tile.MIP_LEVELS);
+        if(level != chunkLevel) {
+            //Every cached image is the wrong size now
+            for(int ci = 0; ci < chunkImages.length; ci++) {
+                for(int cj = 0; cj < chunkImages[ci].length; cj++) {
+                    chunkImages[ci][cj] = null;
+                    chunkStale[ci][cj] = true;
+                }
+            }
+            chunkLevel = level;
+        }
+        int offsetX = camera.getOffsetX() - home.x * Tile.LENGTH;
+        int offsetY = camera.getOffsetY() - home.y * Tile.LENGTH;
+        int viewWidth = (int) Math.ceil(camera.getViewWidth() / camera.getZoom());
+        int viewHeight = (int) Math.ceil(camera.getViewHeight() / camera.getZoom());
+        int chunkPixelsX = CHUNK_WIDTH * Tile.LENGTH;
+        int chunkPixelsY = CHUNK_HEIGHT * Tile.LENGTH;
+        int left = Math.max(0, Math.floorDiv(offsetX, chunkPixelsX));
+        int top = Math.max(0, Math.floorDiv(offsetY, chunkPixelsY));
+        int right = Math.min(chunkImages.length - 1, Math.floorDiv(offsetX + viewWidth - 1, chunkPixelsX));
+        int bottom = Math.min(chunkImages[0].length - 1, Math.floorDiv(offsetY + viewHeight - 1, chunkPixelsY));
+        Rectangle clip = g.getClipBounds();
+        Graphics2D g2d = (Graphics2D) g;
+        Framebuffer framebuffer = Framebuffer.getActive();
+        Rectangle[] parts = clip == null ? null : DirtyRegion.split(g.getClip());
+        boolean direct = framebuffer != null && camera.getZoom() == 1 && g2d.getTransform().isIdentity()
+                && (clip == null || parts != null);
+        if(direct) {
+            for(int k = 0; k < (parts == null ? 1 : parts.length); k++) {
+                renderTiles(framebuffer, parts == null ? null : parts[k], left * CHUNK_WIDTH, top * CHUNK_HEIGHT, 
+                        (right + 1) * CHUNK_WIDTH, (bottom + 1) * CHUNK_HEIGHT);
+            }
+        }
+        Object interpolation = g2d.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        boolean scaled = camera.getZoom() != 1;
+        if(scaled) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        for(int ci = left; ci <= right && !direct; ci++) {
+            for(int cj = top; cj <= bottom; cj++) {
+                int screenX = toScreenX(ci * CHUNK_WIDTH);
+                int screenY = toScreenY(cj * CHUNK_HEIGHT);
+                int width = toScreenX((ci + 1) * CHUNK_WIDTH) - screenX;
+                int height = toScreenY((cj + 1) * CHUNK_HEIGHT) - screenY;
+                if(clip != null && !clip.intersects(screenX, screenY, width, height)) {
+                    continue;
+                }
+                if(chunkStale[ci][cj]) {
+                    drawChunk(ci, cj);
+                }
+                BufferedImage image = chunkImages[ci][cj];
+                if(image == null) {
+                    continue;
+                }
+                if(image.getWidth() == width && image.getHeight() == height) {
+                    g.drawImage(image, screenX, screenY, null);
+                } else {
+                    g.drawImage(image, screenX, screenY, width, height, null);
+                }
+            }
+        }
+        for(int i = left * CHUNK_WIDTH; i < (right + 1) * CHUNK_WIDTH; i++) {
+            for(int j = top * CHUNK_HEIGHT; j < (bottom + 1) * CHUNK_HEIGHT; j++) {
+                Tile t = home.grid[i][j];
+                if(t != null && t.getAnimator() != null) {
+                    int screenX = toScreenX(i);
+                    int screenY = toScreenY(j);
+                    t.place(screenX, screenY);
+                    t.render(g, toScreenX(i + 1) - screenX, toScreenY(j + 1) - screenY);
+                }
+            }
+        }
+        if(scaled) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation != null ? interpolation 
+                    : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        }
+        releaseChunks(left, top, right, bottom);
+    }
+    
+    /**
+     * Copies the Tiles in the given part of the grid which are not animated straight into the Framebuffer from
+     * the pixels of their SpriteSheets. Opaque textures are copied row by row and the rest are blended.
+     * Only the Tiles which overlap the clip are visited.
+     * @param framebuffer the Framebuffer the frame is being drawn into
+     * @param clip the part of the Framebuffer which may be changed (null for all of it)
+     * @param left the first column to draw
+     * @param top the first row to draw
+     * @param right one past the last column to draw
+     * @param bottom one past the last row to draw
+     */
+    private void renderTiles(Framebuffer framebuffer, Rectangle clip, int left, int top, int right, int bottom) {
+        if(clip != null) {
+            if(clip.isEmpty()) {
+                return;
+            }
+            left = Math.max(left, Math.floorDiv(camera.toWorldX(clip.x), Tile.LENGTH) - home.x);
+            top = Math.max(top, Math.floorDiv(camera.toWorldY(clip.y), Tile.LENGTH) - home.y);
+            right = Math.min(right, Math.floorDiv(camera.toWorldX(clip.x + clip.width - 1), Tile.LENGTH) - home.x + 1);
+            bottom = Math.min(bottom, Math.floorDiv(camera.toWorldY(clip.y + clip.height - 1), Tile.LENGTH) 
+                    - home.y + 1);
+        }
+        for(int i = left; i < right; i++) {
+            int screenX = toScreenX(i);
+            for(int j = top; j < bottom; j++) {
+                Tile t = home.grid[i][j];
+                if(t == null || t.getAnimator() != null) {
+                    continue;
+                }
+                SpriteSheet sheet = t.getSheet(home.locked[i][j]);
+                int sx = t.getSprite() * Tile.LENGTH;
+                if(sheet.isOpaque(t.getSprite(), 0)) {
+                    framebuffer.copy(sheet.getPixels(), sheet.getStride(), sx, 0, Tile.LENGTH, Tile.LENGTH, 
+                            screenX, toScreenY(j), clip);
+                } else {
+                    framebuffer.blend(sheet.getPixels(), sheet.getStride(), sx, 0, Tile.LENGTH, Tile.LENGTH, 
+                            screenX, toScreenY(j), clip);
                 }
             }
         }
     }
     
     /**
-     * @param mouseP the position of the mouse
-     * @return the corners of the Tile the mouse currently occupies
+     * @param i a column of the grid (may be one past the last column, for the right edge of a Tile)
+     * @return the screen x position (in pixels) of the left edge of the column
+     */
+    private int toScreenX(int i) {
+        return camera.toScreenX((i + home.x) * Tile.LENGTH);
+    }
+    
+    /**
+     * @param j a row of the grid (may be one past the last row, for the bottom edge of a Tile)
+     * @return the screen y position (in pixels) of the top edge of the row
+     */
+    private int toScreenY(int j) {
+        return camera.toScreenY((j + home.y) * Tile.LENGTH);
+    }
+    
+    /**
+     * Marks the given Tiles as needing to be redrawn on screen
+     * @see view.DirtyRegion
+     * @param i the column of the top-left Tile in the grid
+     * @param j the row of the top-left Tile in the grid
+     * @param columns how many columns to mark
+     * @param rows how many rows to mark
+     */
+    private void markScreenDirty(int i, int j, int columns, int rows) {
+        int screenX = toScreenX(i);
+        int screenY = toScreenY(j);
+        DirtyRegion.add(screenX, screenY, toScreenX(i + columns) - screenX, toScreenY(j + rows) - screenY);
+    }
+    
+    /**
+     * Redraws the cached image of the given chunk from the Tiles in it which are not animated,
+     * using their textures at the current mipmap level
+     * @param ci the column of the chunk
+     * @param cj the row of the chunk
+     */
+    private void drawChunk(int ci, int cj) {
+        chunkStale[ci][cj] = false;
+        BufferedImage image = chunkImages[ci][cj];
+        int length = Tile.getLength(chunkLevel);
+        Graphics2D g = null;
+        for(int i = 0; i < CHUNK_WIDTH; i++) {
+            for(int j = 0; j < CHUNK_HEIGHT; j++) {
+                int column = ci * CHUNK_WIDTH + i;
+                int row = cj * CHUNK_HEIGHT + j;
+                Tile t = home.grid[column][row];
+                if(t != null && t.getAnimator() == null && t.getSprite() >= 0) {
+                    if(g == null) {
+                        if(image == null) {
+                            image = new BufferedImage(CHUNK_WIDTH * length, CHUNK_HEIGHT * length, 
+                                    BufferedImage.TYPE_INT_ARGB);
+                        }
+                        g = image.createGraphics();
+                        g.setComposite(AlphaComposite.Src);
+                        g.setColor(new Color(0, 0, 0, 0));
+                        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                    }
+                    g.drawImage(t.getTexture(chunkLevel, home.locked[column][row]), i * length, j * length, null);
+                }
+            }
+        }
+        if(g == null) {
+            //The chunk is empty, so there is nothing to draw
+            image = null;
+        } else {
+            g.dispose();
+        }
+        chunkImages[ci][cj] = image;
+    }
+    
+    /**
+     * Throws away the images of chunks which are far from the given range of chunks on screen.
+     * They are drawn again if they come back on screen.
+     */
+    private void releaseChunks(int left, int top, int right, int bottom) {
+        for(int ci = 0; ci < chunkImages.length; ci++) {
+            for(int cj = 0; cj < chunkImages[ci].length; cj++) {
+                if(chunkImages[ci][cj] != null && (ci < left - CHUNK_MARGIN || ci > right + CHUNK_MARGIN 
+                        || cj < top - CHUNK_MARGIN || cj > bottom + CHUNK_MARGIN)) {
+                    chunkImages[ci][cj] = null;
+                    chunkStale[ci][cj] = true;
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param mouseX the x position of the mouse in pixels
+     * @param mouseY the y position of the mouse in pixels
+     * @return the key of the global position of the Tile the mouse currently occupies
+     * @see model.TileManager#tileKey(int, int)
      * @see state.GameState#tick()
      */
-    public Point[] getActiveRange(Point mouseP) {
-        int left = (int) (Math.floor(mouseP.x / 50.0) * 50);
-        int right = (int) (Math.ceil(mouseP.x / 50.0) * 50);
-        int top = (int) (Math.floor(mouseP.y / 50.0) * 50);
-        int bottom = (int) (Math.ceil(mouseP.y / 50.0) * 50);
-        return new Point[] {new Point(left, top), new Point(right, bottom)};
+    public long getActiveTile(int mouseX, int mouseY) {
+        return tileKey(toGlobalColumn(mouseX), toGlobalRow(mouseY));
     }
     
     /**
-     * @param mousePos the position of the mouse in pixels
+     * @param mouseX the x position of the mouse in pixels
+     * @param mouseY the y position of the mouse in pixels
      * @return true if the mouse is inside the bounds set by the crystal.
      */
-    public boolean mouseInBounds(Point mousePos) {
-        Point absPos = convertToGlobalTileCoords(mousePos.x, mousePos.y);
-        return Math.abs(absPos.y) <= Math.abs(crystalHeight);
+    public boolean mouseInBounds(int mouseX, int mouseY) {
+        return inTowerRange(toGlobalRow(mouseY));
+    }
+    
+    /**
+     * @param globalY the row of a Tile in global coordinates
+     * @return true if the row is inside the bounds set by the crystal
+     */
+    private boolean inTowerRange(int globalY) {
+        return Math.abs(globalY) <= towerRange;
+    }
+    
+    /**
+     * Moves the crystal to the given height and updates the range of the tower.
+     * Only the rows which enter or leave the range are queued to be locked or unlocked, which happens in the
+     * next tick with time for it (see {@link model.TileManager#tick()}).
+     * @param height the new global row of the crystal
+     */
+    private void setCrystalHeight(int height) {
+        crystalHeight = height;
+        int range = Math.abs(height);
+        if(range != towerRange) {
+            int low = Math.min(range, towerRange) + 1;
+            int high = Math.max(range, towerRange);
+            towerRange = range;
+            for(int row = low; row <= high; row++) {
+                queueRow(row);
+                queueRow(-row);
+            }
+        }
+    }
+    
+    /**
+     * Queues the given row to be locked or unlocked, unless it is outside the grid or already queued
+     * @param globalY the row in global coordinates
+     */
+    private void queueRow(int globalY) {
+        int j = globalY - home.y;
+        if(j >= 0 && j < TILE_GRID_HEIGHT) {
+            pendingRows.add(0, j);
+        }
+    }
+    
+    /**
+     * Locks or unlocks the row which has waited longest to be
+     * @throws IllegalStateException if no rows are waiting
+     */
+    private void updateNextRow() {
+        updateRow(pendingRows.row(pendingRows.take()) + home.y);
+    }
+    
+    /**
+     * Locks or unlocks every Tile in the given row depending on whether or not it is in the range 
+     * of the tower, and marks the row as needing to be redrawn
+     * @param globalY the row in global coordinates
+     */
+    private void updateRow(int globalY) {
+        int j = globalY - home.y;
+        if(j < 0 || j >= TILE_GRID_HEIGHT) {
+            return;
+        }
+        visibilityVersion++;
+        boolean visible = inTowerRange(globalY);
+        for(int i = 0; i < TILE_GRID_WIDTH; i++) {
+            visibilityMask[i][j] = visible;
+            if(home.grid[i][j] != null) {
+                home.updateLock(i, j);
+            }
+        }
+        markScreenDirty(0, j, TILE_GRID_WIDTH, 1);
+    }
+    
+    /**
+     * The returned array is owned by the TileManager and must not be modified
+     * @return which Tiles on screen are visible (stored in the format [x][y])
+     * @see state.GameState.WarFog
+     */
+    public boolean[][] getVisibilityMask() {
+        return visibilityMask;
+    }
+    
+    /**
+     * @return a number which changes every time the visibility mask changes
+     */
+    public int getVisibilityVersion() {
+        return visibilityVersion;
+    }
+    
+    /**
+     * @return how brightly lit each Tile of the grid is
+     */
+    public LightMap getLightMap() {
+        return lightMap;
+    }
+    
+    /**
+     * @return the kind of every Tile in the grid in the format [x][y], for saving
+     * @see component.Tile#kindOf(Tile)
+     */
+    public byte[][] exportKinds() {
+        byte[][] kinds = new byte[TILE_GRID_WIDTH][TILE_GRID_HEIGHT];
+        for(int i = 0; i < TILE_GRID_WIDTH; i++) {
+            for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
+                kinds[i][j] = (byte) Tile.kindOf(home.grid[i][j]);
+            }
+        }
+        return kinds;
+    }
+    
+    /**
+     * @return the global column of the top-left Tile in the grid
+     */
+    public int getGridX() {
+        return home.x;
     }
     
     /**
-     * @return the range at which to start drawing the fog of war
+     * @return the global row of the top-left Tile in the grid
      */
-    public int[] getVisibleRange() {
-        Point p = convertToLocalTileCoords(new Point(crystalHeight, -crystalHeight));
-        return new int[] {(p.x - 4) * 50, (p.y + 1) * 50};
+    public int getGridY() {
+        return home.y;
     }
     
     /**
-     * A 30x20 grid of Tiles.
+     * @return the global row of the crystal
+     */
+    public int getCrystalHeight() {
+        return crystalHeight;
+    }
+    
+    /**
+     * A 60x40 grid of Tiles.
      * These are the groups of tiles which will be loaded in memory (i.e. if the user navigates far
      * enough away the Tile will be unloaded)
      * @author Spencer Yoder
@@ -222,96 +1094,113 @@ public class TileManager extends Component {
         private int x;
         /** The global y-coordinate (in Tiles) of the top-left Tile in the grid */
         private int y;
-        /** The grid of Tiles (stored in the format [x][y]) */
+        /** The grid of Tiles (stored in the format [x][y]). Each cell holds the shared Tile of its kind
+         * (see {@link component.Tile#of(TileType)}) */
         private Tile[][] grid;
+        /** Whether or not the Tile in each cell is locked (stored in the format [x][y], and only meaningful
+         * where there is a Tile) */
+        private boolean[][] locked;
+        /** Keeps track of which Tiles in the grid are held in place (fluids are left out, so they cannot anchor
+         * or hold any Tiles) */
+        private IntegritySolver solver;
         
         /**
          * Constructs a new TileGrid
          * @param x The global x-coordinate (in Tiles) of the top-left Tile in the grid
          * @param y The global y-coordinate (in Tiles) of the top-left Tile in the grid
+         * @param kinds the kind of each Tile in the grid in the format [x][y] (null to generate the ground)
          */
-        private TileGrid(int x, int y) {
+        private TileGrid(int x, int y, byte[][] kinds) {
             this.x = x;
             this.y = y;
             grid = new Tile[TILE_GRID_WIDTH][TILE_GRID_HEIGHT];
+            locked = new boolean[TILE_GRID_WIDTH][TILE_GRID_HEIGHT];
+            solver = new IntegritySolver(TILE_GRID_WIDTH, TILE_GRID_HEIGHT);
+            if(kinds != null) {
+                for(int i = 0; i < TILE_GRID_WIDTH; i++) {
+                    for(int j = 0; j < TILE_GRID_HEIGHT; j++) {
+                        Tile t = Tile.create(kinds[i][j]);
+                        if(t != null) {
+                            addTile(t, i + x, j + y);
+                        }
+                    }
+                }
+                return;
+            }
             for(int i = x; i < x + TILE_GRID_WIDTH; i++) {
                 for(int j = y; j < y + TILE_GRID_HEIGHT; j++) {
                     if(j == 1) {
-                        addTile(new Tile.GrassTile(), i, j);
+                        addTile(Tile.of(TileType.GRASS), i, j);
                     } else if(j > 1 && j <= 5) {
-                        addTile(new Tile.DirtTile(), i, j);
+                        addTile(Tile.of(TileType.DIRT), i, j);
                     } else if(j > 1) {
-                        addTile(new Tile.StoneTile(), i, j);
+                        addTile(Tile.of(TileType.STONE), i, j);
                     }
                 }
             }
         }
         
         /**
-         * Links the given Tile so that it knows about the adjacent Tiles in the grid
-         * @param i the column (x) of the Tile
-         * @param j the row (y) of the Tile
+         * @param i the column (x) in local coordinates
+         * @param j the row (y) in local coordinates
+         * @return the Tile at the given position (null if it is empty or outside the grid)
          */
-        private void link(int i, int j) {
-            if(i < TILE_GRID_WIDTH && j < TILE_GRID_HEIGHT) {
-                Tile current = grid[i][j];
-                if(current != null) {
-                    if(i > 0) {
-                        current.setNeighbor(grid[i - 1][j], Tile.LEFT);
-                    }
-                    if(i < TILE_GRID_WIDTH - 1) {
-                        current.setNeighbor(grid[i + 1][j], Tile.RIGHT);
-                    }
-                    if(j < TILE_GRID_HEIGHT - 1) {
-                        current.setNeighbor(grid[i][j + 1], Tile.BOTTOM);
-                    }
-                    if(j > 0) {
-                        current.setNeighbor(grid[i][j - 1], Tile.TOP);
-                    }
-                }
-                for(int k = Tile.RIGHT; k <= Tile.BOTTOM; k++) {
-                    linkHelper(current, k, i, j);
-                }
+        private Tile get(int i, int j) {
+            if(i < 0 || j < 0 || i >= TILE_GRID_WIDTH || j >= TILE_GRID_HEIGHT) {
+                return null;
             }
+            return grid[i][j];
         }
         
         /**
-         * A helper method for {@link model.TileManager.TileGrid#link(int, int)}
-         * The former links a tile to the tiles around it, this links the other way around
-         * Very useful if the Tile is null
-         * @param current the Tile to link
-         * @param direction the direction to link
-         * @param i the x position of the Tile in local coordinates
-         * @param j the y position of the Tile in local coordinate
+         * Moves the Tile at the given position to an empty space
+         * @param i the column (x) the Tile is in
+         * @param j the row (y) the Tile is in
+         * @param toI the column (x) to move the Tile to
+         * @param toJ the row (y) to move the Tile to
          */
-        private void linkHelper(Tile current, int direction, int i, int j) {
-            switch (direction) {
-                case Tile.LEFT:
-                    i -= 1;
-                    direction = Tile.RIGHT;
-                    break;
-                case Tile.RIGHT:
-                    i += 1;
-                    direction = Tile.LEFT;
-                    break;
-                case Tile.BOTTOM:
-                    j += 1;
-                    direction = Tile.TOP;
-                    break;
-                case Tile.TOP:
-                    j -= 1;
-                    direction = Tile.BOTTOM;
-                    break;
+        private void move(int i, int j, int toI, int toJ) {
+            Tile t = grid[i][j];
+            grid[i][j] = null;
+            grid[toI][toJ] = t;
+            locked[toI][toJ] = locked[i][j];
+            solver.remove(i, j);
+            if(!t.isFluid()) {
+                solver.add(toI, toJ, !t.canFall());
             }
-            if(i >= 0 && j >=0 && i < TILE_GRID_WIDTH && j < TILE_GRID_HEIGHT) {
-                Tile neighbor = grid[i][j];
-                if(neighbor != null)
-                    neighbor.setNeighbor(current, direction);
+            updateLock(toI, toJ);
+        }
+        
+        /**
+         * Removes the Tile at the given position from the grid
+         * @param i the column (x) of the Tile
+         * @param j the row (y) of the Tile
+         * @return the removed Tile
+         */
+        private Tile removeTile(int i, int j) {
+            Tile t = grid[i][j];
+            grid[i][j] = null;
+            solver.remove(i, j);
+            return t;
+        }
+        
+        /**
+         * Marks the Tile at the given position as needing to be redrawn, both in the image of its chunk
+         * and on screen
+         * @see view.DirtyRegion
+         * @param i the column (x) of the Tile
+         * @param j the row (y) of the Tile
+         */
+        private void markDirty(int i, int j) {
+            if(i < 0 || j < 0 || i >= TILE_GRID_WIDTH || j >= TILE_GRID_HEIGHT) {
+                return;
             }
+            chunkStale[i / CHUNK_WIDTH][j / CHUNK_HEIGHT] = true;
+            markScreenDirty(i, j, 1, 1);
         }
         
         /**
-         * Adds the Tile to the grid and screen, and links and places it
+         * Adds the Tile to the grid. A new Tile starts out locked
          * @param t the given Tile
          * @param x the x position of the tile in pixels
          * @param y the y position of the tile in pixels
@@ -320,8 +1209,24 @@ public class TileManager extends Component {
             int i = x - this.x;
             int j = y - this.y;
             grid[i][j] = t;
-            link(i, j);
-            t.place(i * 50, j * 50);
+            locked[i][j] = true;
+            if(!t.isFluid()) {
+                solver.add(i, j, !t.canFall());
+            }
+            updateLock(i, j);
+        }
+        
+        /**
+         * Locks the Tile at the given position if it is outside the range of the tower, otherwise unlocks it
+         * @param i the column (x) of the Tile
+         * @param j the row (y) of the Tile
+         */
+        private void updateLock(int i, int j) {
+            boolean lock = !inTowerRange(j + y);
+            if(locked[i][j] != lock) {
+                locked[i][j] = lock;
+                events.post(lock ? TileEvent.Type.LOCKED : TileEvent.Type.UNLOCKED, grid[i][j], i + x, j + y);
+            }
         }
     }
 }
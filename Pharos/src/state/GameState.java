@@ -3,13 +3,22 @@
  */
 package state;
 
+import java.awt.AlphaComposite;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 import javax.swing.SwingUtilities;
 
@@ -17,10 +26,23 @@ import assets.Assets;
 import component.Animator;
 import component.Component;
 import component.Item;
+import component.ItemType;
 import component.Tile;
+import component.TileType;
 import model.Debug;
-import model.Loader;
+import model.EntityStore;
+import model.Game;
+import model.Inventory;
+import model.LightMap;
+import model.TextureCache;
+import model.TextureCache.Texture;
+import model.TileEvent;
+import model.TileJournal;
+import model.TileListener;
 import model.TileManager;
+import view.Camera;
+import view.DirtyRegion;
+import view.LayerManager;
 import view.SpriteSheet;
 
 /**
@@ -34,8 +56,10 @@ public class GameState extends State {
     private Component background;
     /** See {@link state.GameState.BreakIndicator} */
     private BreakIndicator breakIndicator;
-    /** The range (in pixels) of the Tile that contains the mouse pointer */
-    private Point[] activeTileRange;
+    /** The global position of the Tile that contains the mouse pointer, see {@link model.TileManager#tileKey(int, int)} */
+    private long activeTileKey;
+    /** The Items the player is carrying, see {@link model.Inventory} */
+    private Inventory inventory;
     /** See {@link state.GameState.Hotbar} */
     private Hotbar hotbar;
     /** See {@link state.GameState.PlaceIndicator} */
@@ -44,12 +68,34 @@ public class GameState extends State {
     private Point mousePos;
     /** See {@link state.GameState.WarFog} */
     private WarFog warFog;
+    /** The dropped Items, see {@link model.EntityStore} */
+    private EntityStore entities;
+    /** See {@link state.GameState.Lighting} */
+    private Lighting lighting;
+    /** See {@link model.TileJournal} */
+    private TileJournal journal;
+    /** The directory the world is saved in */
+    private File saveDirectory;
+    /** Whether or not the keys which pan the {@link view.Camera} in each direction are held */
+    private boolean panLeft, panRight, panUp, panDown;
 
     /**
+     * Constructs a new GameState which saves the world in the .pharos directory in the user's home directory
      * @see state.State#State(Canvas)
      */
     public GameState(Canvas canvas) {
+        this(canvas, new File(System.getProperty("user.home"), ".pharos"));
+    }
+    
+    /**
+     * Constructs a new GameState which saves the world in the given directory
+     * @param canvas a canvas for the MouseWatcher
+     * @param saveDirectory the directory the world is loaded from and saved in
+     * @see state.State#State(Canvas)
+     */
+    public GameState(Canvas canvas, File saveDirectory) {
         super(canvas);
+        this.saveDirectory = saveDirectory;
     }
 
     /**
@@ -58,17 +104,23 @@ public class GameState extends State {
     @Override
     public void tick() {
         mouseWatcher.checkComponents();
+        tileManager.getCamera().tick();
         mousePos = canvas.getMousePosition();
-        if(breakIndicator != null && mousePos != null && tileManager.mouseInBounds(mousePos)) {
+        if(mousePos != null) {
+            for(ItemType type = entities.collect(mousePos.x, mousePos.y); type != null; 
+                    type = entities.collect(mousePos.x, mousePos.y)) {
+                handleItemCollect(type);
+            }
+        }
+        if(breakIndicator != null && mousePos != null && tileManager.mouseInBounds(mousePos.x, mousePos.y)) {
             breakIndicator.place(mousePos.x - 7, mousePos.y - 7);
-            if(mousePos.x < activeTileRange[0].x || mousePos.x > activeTileRange[1].x || mousePos.y < activeTileRange[0].y ||
-                    mousePos.y > activeTileRange[1].y) {
+            if(tileManager.getActiveTile(mousePos.x, mousePos.y) != activeTileKey) {
                 layerManager.remove(breakIndicator);
                 Tile activeTile = tileManager.getTile(mousePos.x, mousePos.y);
                 if(activeTile != null && activeTile.canBreak()) {
                     breakIndicator = new BreakIndicator(activeTile.getBreakTime());
                     layerManager.temporaryAdd(breakIndicator, 3);
-                    activeTileRange = tileManager.getActiveRange(mousePos);
+                    activeTileKey = tileManager.getActiveTile(mousePos.x, mousePos.y);
                 } else {
                     breakIndicator = null;
                 }
@@ -89,11 +141,11 @@ public class GameState extends State {
     /**
      * Spawns the given Item and draws it to the screen
      * @param item the given Item
+     * @see model.EntityStore#spawn(Item)
      */
     public void spawnItem(Item item) {
         if(item != null) {
-            mouseWatcher.temporaryAdd(item);
-            layerManager.temporaryAdd(item, 3);
+            entities.spawn(item);
         }
     }
 
@@ -108,15 +160,17 @@ public class GameState extends State {
 
     /**
      * @see state.State#handleClick(MouseEvent)
-     * @see model.TileManager#handleRightClick(int, int, Tile)
+     * @see model.TileManager#handleRightClick(int, int, TileType)
      * @see model.MouseWatcher#handleClick()
      */
     @Override
     public void handleClick(MouseEvent e) {
         if(SwingUtilities.isRightMouseButton(e)) {
-            if(tileManager.mouseInBounds(mousePos) && 
-                    tileManager.handleRightClick(mousePos.x, mousePos.y, placeIndicator.slot == null ? null : placeIndicator.slot.item.getTile())) {
-                hotbar.slots[hotbar.index].amount--;
+            ItemType type = hotbar.getSelected();
+            if(mousePos != null && tileManager.mouseInBounds(mousePos.x, mousePos.y) && 
+                    tileManager.handleRightClick(mousePos.x, mousePos.y, type == null ? null : type.getTileType())) {
+                inventory.remove(type);
+                hotbar.markDirty();
             }
         } else if(SwingUtilities.isLeftMouseButton(e)) {
             mouseWatcher.handleClick();
@@ -128,30 +182,74 @@ public class GameState extends State {
      */
     @Override
     protected void load() {
-        tileManager = new TileManager();
+        List<Texture> tileTextures = TileType.getTextures();
+        for(int i = 0; i < tileTextures.size(); i++) {
+            useTexture(tileTextures.get(i));
+        }
+        for(int id = 0; id < ItemType.count(); id++) {
+            useTexture(ItemType.get(id).getTexture());
+        }
+        useTexture(BreakIndicator.TEXTURE);
+        journal = new TileJournal(saveDirectory);
+        boolean autosave = true;
+        try {
+            tileManager = new TileManager(journal.recover());
+        } catch(IOException | IllegalArgumentException e) {
+            Debug.println("Could not recover the saved world: " + e.getMessage());
+            //Keep the saved world so that the new one does not write over it
+            try {
+                Debug.println("The saved world was moved to " + journal.backUp());
+            } catch(IOException backUpFailed) {
+                Debug.println("Autosave is off, the saved world could not be moved: " + backUpFailed.getMessage());
+                autosave = false;
+            }
+            tileManager = new TileManager();
+        }
+        tileManager.addTileListener(new TileListener() {
+            @Override
+            public void tilesChanged(List<TileEvent> events) {
+                for(int i = 0; i < events.size(); i++) {
+                    TileEvent e = events.get(i);
+                    if(e.getType() == TileEvent.Type.COLLAPSED) {
+                        spawnItem(e.getTile().getItem(e.getX() * Tile.LENGTH, e.getY() * Tile.LENGTH));
+                    }
+                }
+            }
+        });
+        if(autosave) {
+            try {
+                journal.start(tileManager.exportKinds(), tileManager.getGridX(), tileManager.getGridY());
+                tileManager.addTileListener(journal);
+            } catch(IOException e) {
+                Debug.println("Autosave is off: " + e.getMessage());
+            }
+        }
         Assets.loadGameAssets();
         background = Assets.gameBackground;
         layerManager.addComponent(background, 0);
         layerManager.addComponent(tileManager, 1);
+        int worldX = tileManager.getGridX() * Tile.LENGTH;
+        int worldY = tileManager.getGridY() * Tile.LENGTH;
+        entities = new EntityStore(tileManager.getCamera(), worldX, worldY,
+                worldX + TileManager.TILE_GRID_WIDTH * Tile.LENGTH, worldY + TileManager.TILE_GRID_HEIGHT * Tile.LENGTH);
+        layerManager.addComponent(entities, 3);
+        inventory = new Inventory(8);
         hotbar = new Hotbar();
         hotbar.place(523, 924);
         layerManager.addComponent(hotbar, 5);
-        placeIndicator = new PlaceIndicator(hotbar.slots[hotbar.index]);
+        placeIndicator = new PlaceIndicator();
         layerManager.addComponent(placeIndicator, 2);
         
-        hotbar.slots[0] = new InventorySlot(new Item.MudItem(0, 0));
-        hotbar.slots[0].amount = 100;
-        hotbar.slots[1] = new InventorySlot(new Item.StoneItem(0, 0));
-        hotbar.slots[1].amount = 100;
-        
-        hotbar.slots[2] = new InventorySlot(new Item.ScaffoldItem(0, 0));
-        hotbar.slots[2].amount = 100;
-        if(hotbar.slots[hotbar.index] != null) {
-            placeIndicator.setInventorySlot(hotbar.slots[hotbar.index]);
-        }
+        hotbar.addItem(ItemType.MUD, 100);
+        hotbar.addItem(ItemType.STONE, 100);
+        hotbar.addItem(ItemType.SCAFFOLD, 100);
+        hotbar.addItem(ItemType.WATER, 100);
+        placeIndicator.setType(hotbar.getSelected());
         
         warFog = new WarFog();
         layerManager.addComponent(warFog, 4);
+        lighting = new Lighting();
+        layerManager.addComponent(lighting, 2);
     }
 
     /**
@@ -159,8 +257,42 @@ public class GameState extends State {
      */
     @Override
     protected void unload() {
-        //TODO incomplete
+        journal.close();
         tileManager = null;
+        entities = null;
+        inventory = null;
+        hotbar = null;
+        placeIndicator = null;
+        breakIndicator = null;
+        warFog = null;
+        lighting = null;
+        layerManager = new LayerManager();
+        Assets.unloadGameAssets();
+    }
+    
+    /**
+     * @return the TileManager of the world (null if the GameState is not loaded)
+     */
+    public TileManager getTileManager() {
+        return tileManager;
+    }
+    
+    /**
+     * @return the dropped Items in the world (null if the GameState is not loaded)
+     */
+    public EntityStore getEntities() {
+        return entities;
+    }
+    
+    /**
+     * Counts the images of the chunks of Tiles and the darkness of the {@link state.GameState.Lighting},
+     * which are by far the largest things the GameState holds
+     * @see state.State#getFootprint()
+     */
+    @Override
+    protected long getFootprint() {
+        TileManager tiles = tileManager;
+        return tiles == null ? 0 : tiles.getChunkCacheBytes() + 4L * Game.width * Game.height;
     }
 
     /**
@@ -168,9 +300,9 @@ public class GameState extends State {
      */
     @Override
     public void handlePress(MouseEvent e) {
-        if(SwingUtilities.isLeftMouseButton(e) && tileManager.mouseInBounds(mousePos)) {
-            Point p = canvas.getMousePosition();
-            activeTileRange = tileManager.getActiveRange(p);
+        Point p = canvas.getMousePosition();
+        if(SwingUtilities.isLeftMouseButton(e) && p != null && tileManager.mouseInBounds(p.x, p.y)) {
+            activeTileKey = tileManager.getActiveTile(p.x, p.y);
             Tile t = tileManager.getTile(p.x, p.y);
             if(t != null && t.canBreak()) {
                 breakIndicator = new BreakIndicator(t.getBreakTime());
@@ -180,12 +312,63 @@ public class GameState extends State {
     }
     
     /**
+     * @see state.State#handleKeyPress(KeyEvent)
+     */
+    @Override
+    public void handleKeyPress(KeyEvent e) {
+        setPanKey(e.getKeyCode(), true);
+    }
+    
+    /**
+     * @see state.State#handleKeyRelease(KeyEvent)
+     */
+    @Override
+    public void handleKeyRelease(KeyEvent e) {
+        setPanKey(e.getKeyCode(), false);
+    }
+    
+    /**
+     * Pans the {@link view.Camera} while the arrow keys or WASD are held
+     * @param keyCode the key which was pressed or released
+     * @param held true if the key was pressed
+     */
+    private void setPanKey(int keyCode, boolean held) {
+        switch(keyCode) {
+            case KeyEvent.VK_LEFT:
+            case KeyEvent.VK_A:
+                panLeft = held;
+                break;
+            case KeyEvent.VK_RIGHT:
+            case KeyEvent.VK_D:
+                panRight = held;
+                break;
+            case KeyEvent.VK_UP:
+            case KeyEvent.VK_W:
+                panUp = held;
+                break;
+            case KeyEvent.VK_DOWN:
+            case KeyEvent.VK_S:
+                panDown = held;
+                break;
+            default:
+                return;
+        }
+        tileManager.getCamera().setPan((panRight ? 1 : 0) - (panLeft ? 1 : 0), (panDown ? 1 : 0) - (panUp ? 1 : 0));
+    }
+    
+    /**
+     * Zooms the {@link view.Camera} around the mouse while control is held, otherwise changes the selected slot
      * @see state.GameState.Hotbar#changeSelection(int)
+     * @see view.Camera#zoomBy(int, int, int)
      */
     @Override
     public void handleScroll(MouseWheelEvent e) {
+        if(e.isControlDown()) {
+            tileManager.getCamera().zoomBy(e.getWheelRotation(), e.getX(), e.getY());
+            return;
+        }
         hotbar.changeSelection(e.getWheelRotation());
-        placeIndicator.setInventorySlot(hotbar.slots[hotbar.index]);
+        placeIndicator.setType(hotbar.getSelected());
     }
     
     /**
@@ -196,19 +379,21 @@ public class GameState extends State {
      * @author Spencer Yoder
      */
     private static class BreakIndicator extends Component {
+        /** The path of the frames of the wheel */
+        private static final String TEXTURE = "/textures/break_indicator.png";
         /** Starts at 0, at 1, the Tile breaks */
         private double progress;
-        /** See {@link component.Tile#breakTime} */
+        /** See {@link component.Tile#getBreakTime()} */
         private double breakTime;
         /**
          * Constructs a new BreakIndicator from the given breakTime
-         * @param breakTime See {@link component.Tile#breakTime}
+         * @param breakTime See {@link component.Tile#getBreakTime()}
          */
         private BreakIndicator(double breakTime) {
             super(null);
             this.breakTime = breakTime;
             progress = 0;
-            animator = new Animator(new SpriteSheet(15, 15, Loader.loadTexture("/textures/break_indicator.png")), breakTime);
+            animator = new Animator(TextureCache.get(TEXTURE).getSheet(15, 15, 1), breakTime);
         }
         
         /**
@@ -229,72 +414,63 @@ public class GameState extends State {
         if(SwingUtilities.isLeftMouseButton(e)) {
             if(breakIndicator != null)
                 layerManager.remove(breakIndicator);
-            activeTileRange = null;
             breakIndicator = null;
         }
     }
 
     /**
-     * Handles the collection of the given item
-     * @param item the given item
-     * @see state.GameState.Hotbar#addItem(Item)
+     * Handles the collection of an item of the given kind
+     * @param type the kind of the item
+     * @see state.GameState.Hotbar#addItem(ItemType, int)
      */
-    public void handleItemCollect(Item item) {
-        if(item != null) {
-            layerManager.remove(item);
-            mouseWatcher.remove(item);
-            hotbar.addItem(item);
+    public void handleItemCollect(ItemType type) {
+        if(type != null) {
+            hotbar.addItem(type, 1);
         }
     }
     
     /**
-     * A class for the hotbar which stores Items that the user can place.
-     * It is displayed at the bottom of the screen and will later interact with the inventory
+     * A class for the hotbar which shows the slots of the {@link model.Inventory}, each with the Items the user can place.
+     * It is displayed at the bottom of the screen
      * @author Spencer Yoder
      */
     private class Hotbar extends Component {
-        /** The array of {@link state.GameState.InventorySlot}s */
-        private InventorySlot[] slots;
         /** The index of current slot the user has selected */
         private int index;
         /** See {@link state.GameState.Hotbar.Selection} */
         private Selection selection;
+        /** How many frames the Hotbar has been drawn for, which decides the frame of the Items' animations */
+        private int age;
+        /** The font the number of Items in each slot is written in */
+        private Font font;
         
         /**
          * Constructs a new Hotbar
          */
         private Hotbar() {
-            super(Loader.loadTexture("/textures/hotbar.png"));
-            slots = new InventorySlot[8];
+            super(useTexture("/textures/hotbar.png"));
             selection = new Selection();
+            font = new Font("Monospaced", Font.BOLD, 24);
         }
         
         /**
-         * Adds the given Item to the Hotbar.
-         * If the item already has a slot in the Hotbar, that slot gets incremented, otherwise, 
-         * the item is placed in the first empty slot from the left
-         * @param item the given Item
+         * Adds the given number of Items of the given kind to the Inventory.
+         * If the kind already has a slot, that slot gets incremented, otherwise, 
+         * the kind is placed in the first empty slot from the left
+         * @param type the kind of Item
+         * @param amount how many to add
+         * @see model.Inventory#add(ItemType, int)
          */
-        public void addItem(Item item) {
-            int idx = -1;
-            boolean found = false;
-            for(int i = 0; i < slots.length; i++) {
-                if(slots[i] == null) {
-                    if(!found) {
-                        idx = i;
-                        found = true;
-                    }
-                } else if(slots[i].item.getClass() == item.getClass()){
-                    slots[i].amount++;
-                    break;
-                }
-            }
-            if(found) {
-                slots[idx] = new InventorySlot(item);
-                if(idx == index) {
-                    placeIndicator.setInventorySlot(slots[idx]);
-                }
-            }
+        public void addItem(ItemType type, int amount) {
+            inventory.add(type, amount);
+            markDirty();
+        }
+        
+        /**
+         * @return the kind of Item in the selected slot (null if it is empty)
+         */
+        public ItemType getSelected() {
+            return inventory.getSlot(index);
         }
         
         /**
@@ -305,34 +481,38 @@ public class GameState extends State {
             index = (index + i) % 8;
             if(index < 0)
                 index = 7;
+            markDirty();
         }
         
         /***/
         @Override
         public void render(Graphics g) {
+            if(age % ItemType.FRAME_DURATION == 0) {
+                markDirty();
+            }
             super.render(g);
-            for(int i = 0; i < slots.length; i++) {
-                if(slots[i] != null) {
-                    slots[i].place(x + 56 * i + 9, y + 9);
-                    slots[i].render(g);
+            g.setColor(Color.WHITE);
+            g.setFont(font);
+            for(int i = 0; i < inventory.getSlotCount(); i++) {
+                ItemType type = inventory.getSlot(i);
+                if(type != null) {
+                    int slotX = x + 56 * i + 9;
+                    int slotY = y + 9;
+                    g.drawImage(type.getFrame(age), slotX, slotY, null);
+                    String amount = "" + inventory.getCount(type);
+                    g.drawString(amount, slotX + 46 - g.getFontMetrics().stringWidth(amount), slotY + 42);
                 }
             }
             selection.place(2 + x + 56 * index, 2 + y);
             selection.render(g);
+            age++;
         }
         
         /**
          * Calculate the state of the Hotbar
          */
         public void tick() {
-            for(int i = 0; i < slots.length; i++) {
-                if(slots[i] != null && slots[i].amount == 0) {
-                    slots[i] = null;
-                    if(i == index) {
-                        placeIndicator.setInventorySlot(null);
-                    }
-                }
-            }
+            placeIndicator.setType(getSelected());
         }
         
         /**
@@ -341,115 +521,229 @@ public class GameState extends State {
          */
         private class Selection extends Component {
             private Selection() {
-                super(Loader.loadTexture("/textures/selection.png"));
+                super(useTexture("/textures/selection.png"));
             }
         }
     }
     
     /**
-     * A class for holding one or many Items in the Hotbar
+     * Shows an Item texture at the cursor's position which indicates the item that will be placed 
      * @author Spencer Yoder
      */
-    private class InventorySlot extends Component {
-        /** The number of Items in the slot */
-        private int amount;
-        /** The type of Item being held in the slot */
-        private Item item;
+    private class PlaceIndicator extends Component {
+        /** The kind of Item which will be placed (null if the selected slot is empty) */
+        private ItemType type;
         
         /**
-         * Construct a new Inventory slot with the given Item
-         * @param i the given Item
+         * Constructs a new PlaceIndicator which shows nothing
          */
-        private InventorySlot(Item i) {
+        public PlaceIndicator() {
             super(null);
-            animator = i.getAnimator();
-            amount = 1;
-            item = i;
+        }
+        
+        /**
+         * Sets the kind of Item which will be placed
+         * @param type the kind of Item (null if there is none)
+         */
+        private void setType(ItemType type) {
+            if(type != this.type) {
+                markDirty();
+                texture = null;
+                this.type = type;
+            }
         }
         
         /***/
         @Override
         public void render(Graphics g) {
+            if(type != null) {
+                updateTexture(type.getFrame(hotbar.age));
+            }
             super.render(g);
-            g.setColor(Color.WHITE);
-            g.setFont(new Font("Monospaced", Font.BOLD, 24));
-            int width = g.getFontMetrics().stringWidth("" + amount);
-            g.drawString("" + amount, x + 46 - width, y + 42);
+            Point p = canvas.getMousePosition();
+            if(p != null) {
+                Camera camera = tileManager.getCamera();
+                place(camera.toScreenX(tileManager.toGlobalColumn(p.x) * Tile.LENGTH) + 3, 
+                        camera.toScreenY(tileManager.toGlobalRow(p.y) * Tile.LENGTH) + 3);
+            }
         }
     }
     
     /**
-     * Shows an Item texture at the cursor's position which indicates the item that will be placed 
+     * Darkens the Tiles by how little light reaches them (see {@link model.LightMap}).
+     * Like the {@link state.GameState.WarFog}, the darkness is kept in an overlay with one pixel for each Tile,
+     * which is only rebuilt when the light changes. It is smoothed as it is scaled up so that the light fades
+     * across each Tile instead of changing at its edges. Smoothing is too slow to do every frame, so the scaled
+     * darkness is kept in a second overlay the size of the screen, which is only rebuilt when the light or the
+     * camera changes. Only the part of that overlay which covers the grid and is being redrawn is copied each frame.
      * @author Spencer Yoder
      */
-    private class PlaceIndicator extends Component {
-        /** The slot from which the item will be taken */
-        private InventorySlot slot;
+    private class Lighting extends Component {
+        /** The alpha of the darkness over a Tile no light reaches */
+        private static final int DARKNESS = 160;
+        /** The darkness (as ARGB colors), indexed by light level */
+        private int[] shades;
+        /** The darkness composited from the light map */
+        private BufferedImage overlay;
+        /** The version of the light map the overlay was composited from */
+        private int overlayVersion;
+        /** The overlay scaled up to the screen */
+        private BufferedImage scaled;
+        /** The screen position of the edges of the grid when scaled was drawn, in the format {left, top, right, bottom} */
+        private int[] scaledEdges;
         
         /**
-         * Constructs a new PlaceIndicator with the given InventorySlot
-         * @param slot the given InventorySlot
+         * Constructs a new Lighting
          */
-        public PlaceIndicator(InventorySlot  slot) {
+        private Lighting() {
             super(null);
-            setInventorySlot(slot);
-        }
-        
-        /**
-         * Sets the InventorySlot to the given InvetorySlot
-         * @param slot the given InventorySlot
-         */
-        private void setInventorySlot(InventorySlot slot) {
-            if(this.slot == null || slot == null || slot.item.getClass() != this.slot.item.getClass()) {
-                if(slot != null)
-                    animator = slot.getAnimator();
-                else {
-                    animator = null;
-                    texture = null;
-                }
-                this.slot = slot;
+            shades = new int[LightMap.MAX_LIGHT + 1];
+            for(int level = 0; level <= LightMap.MAX_LIGHT; level++) {
+                shades[level] = DARKNESS * (LightMap.MAX_LIGHT - level) / LightMap.MAX_LIGHT << 24;
             }
+            LightMap light = tileManager.getLightMap();
+            overlay = new BufferedImage(light.getWidth(), light.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            overlayVersion = light.getVersion() - 1;
+            scaled = new BufferedImage(Game.width, Game.height, BufferedImage.TYPE_INT_ARGB_PRE);
+            scaledEdges = new int[4];
         }
         
         /***/
         @Override
         public void render(Graphics g) {
-            super.render(g);
-            Point p = canvas.getMousePosition();
-            if(p != null) {
-                p = tileManager.convertToLocalTileCoords(p.x, p.y);
-                p.x *= 50;
-                p.y *= 50;
-                place(p.x + 3, p.y + 3);
+            LightMap light = tileManager.getLightMap();
+            Camera camera = tileManager.getCamera();
+            int left = camera.toScreenX(tileManager.getGridX() * Tile.LENGTH);
+            int top = camera.toScreenY(tileManager.getGridY() * Tile.LENGTH);
+            int right = camera.toScreenX((tileManager.getGridX() + overlay.getWidth()) * Tile.LENGTH);
+            int bottom = camera.toScreenY((tileManager.getGridY() + overlay.getHeight()) * Tile.LENGTH);
+            boolean moved = left != scaledEdges[0] || top != scaledEdges[1] || right != scaledEdges[2]
+                    || bottom != scaledEdges[3];
+            if(light.getVersion() != overlayVersion) {
+                for(int i = 0; i < light.getWidth(); i++) {
+                    for(int j = 0; j < light.getHeight(); j++) {
+                        overlay.setRGB(i, j, shades[light.getLight(i, j)]);
+                    }
+                }
+                overlayVersion = light.getVersion();
+                DirtyRegion.addAll();
+                moved = true;
+            }
+            if(moved) {
+                Graphics2D s = scaled.createGraphics();
+                s.setComposite(AlphaComposite.Src);
+                s.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                s.setColor(new Color(0, 0, 0, 0));
+                s.fillRect(0, 0, scaled.getWidth(), scaled.getHeight());
+                s.drawImage(overlay, left, top, right - left, bottom - top, null);
+                s.dispose();
+                scaledEdges[0] = left;
+                scaledEdges[1] = top;
+                scaledEdges[2] = right;
+                scaledEdges[3] = bottom;
+            }
+            Rectangle area = new Rectangle(left, top, right - left, bottom - top)
+                    .intersection(new Rectangle(0, 0, scaled.getWidth(), scaled.getHeight()));
+            Rectangle clip = g.getClipBounds();
+            if(clip != null) {
+                area = area.intersection(clip);
+            }
+            if(area.isEmpty()) {
+                return;
             }
+            g.drawImage(scaled, area.x, area.y, area.x + area.width, area.y + area.height,
+                    area.x, area.y, area.x + area.width, area.y + area.height, null);
         }
     }
     
     /**
      * Indicates which parts of the screen cannot be edited due to the tower
+     * The fog is composited once into an overlay with one pixel for each Tile, which is only rebuilt when the
+     * visibility mask of the {@link model.TileManager} changes and is scaled up to the size of the Tiles as it is drawn
      * @author Spencer Yoder
      */
     private class WarFog extends Component {
-        /** The faded edges of the WarFog */
-        private SpriteSheet edges;
+        /** How many Tiles it takes the fog to fade from the visible range to solid black */
+        private static final int FADE_LENGTH = 3;
+        /** The shades of the fog (as ARGB colors), indexed by the distance (in Tiles) from the nearest visible Tile */
+        private int[] shades;
+        /** The fog composited from the visibility mask */
+        private BufferedImage overlay;
+        /** The version of the visibility mask the overlay was composited from */
+        private int overlayVersion;
+        /** The distance (in Tiles) from each Tile to the nearest visible Tile (in the format [x][y]) */
+        private int[][] distance;
         
         /**
          * Constructs a new WarFog
          */
         private WarFog() {
             super(null);
-            edges = new SpriteSheet(1500, 150, Loader.loadTexture("/textures/fog_edges.png"));
+            SpriteSheet edges = TextureCache.get("/textures/fog_edges.png").getSheet(1500, 150, 1);
+            BufferedImage topEdge = edges.getSprite(0, 0);
+            shades = new int[FADE_LENGTH + 2];
+            for(int d = 1; d <= FADE_LENGTH; d++) {
+                shades[d] = topEdge.getRGB(0, topEdge.getHeight() - d * Tile.LENGTH + Tile.LENGTH / 2);
+            }
+            shades[FADE_LENGTH + 1] = Color.BLACK.getRGB();
+            overlay = new BufferedImage(TileManager.TILE_GRID_WIDTH, TileManager.TILE_GRID_HEIGHT, 
+                    BufferedImage.TYPE_INT_ARGB);
+            overlayVersion = tileManager.getVisibilityVersion() - 1;
+            distance = new int[TileManager.TILE_GRID_WIDTH][TileManager.TILE_GRID_HEIGHT];
+        }
+        
+        /**
+         * Redraws the overlay from the visibility mask.
+         * Each hidden Tile is shaded by its distance to the nearest visible Tile.
+         */
+        private void composite() {
+            boolean[][] mask = tileManager.getVisibilityMask();
+            int w = TileManager.TILE_GRID_WIDTH;
+            int h = TileManager.TILE_GRID_HEIGHT;
+            int far = FADE_LENGTH + 1;
+            //Two passes of a city-block distance transform, capped once the fog is solid
+            for(int i = 0; i < w; i++) {
+                for(int j = 0; j < h; j++) {
+                    int d = mask[i][j] ? 0 : far;
+                    if(i > 0)
+                        d = Math.min(d, distance[i - 1][j] + 1);
+                    if(j > 0)
+                        d = Math.min(d, distance[i][j - 1] + 1);
+                    distance[i][j] = d;
+                }
+            }
+            for(int i = w - 1; i >= 0; i--) {
+                for(int j = h - 1; j >= 0; j--) {
+                    int d = distance[i][j];
+                    if(i < w - 1)
+                        d = Math.min(d, distance[i + 1][j] + 1);
+                    if(j < h - 1)
+                        d = Math.min(d, distance[i][j + 1] + 1);
+                    distance[i][j] = d;
+                }
+            }
+            for(int i = 0; i < w; i++) {
+                for(int j = 0; j < h; j++) {
+                    overlay.setRGB(i, j, shades[Math.min(distance[i][j], far)]);
+                }
+            }
+            DirtyRegion.addAll();
         }
         
         /***/
         @Override
         public void render(Graphics g) {
-            g.setColor(Color.BLACK);
-            int[] heights = tileManager.getVisibleRange();
-            g.drawImage(edges.getSprite(0, 0), 0, heights[0] - 150, null);
-            g.fillRect(0, 0, canvas.getWidth(), heights[0] - 150);
-            g.drawImage(edges.getSprite(0, 1), 0, heights[1], null);
-            g.fillRect(0, heights[1] + 150, canvas.getWidth(), canvas.getHeight() - heights[1]);
+            int version = tileManager.getVisibilityVersion();
+            if(version != overlayVersion) {
+                composite();
+                overlayVersion = version;
+            }
+            Camera camera = tileManager.getCamera();
+            int left = camera.toScreenX(tileManager.getGridX() * Tile.LENGTH);
+            int top = camera.toScreenY(tileManager.getGridY() * Tile.LENGTH);
+            int right = camera.toScreenX((tileManager.getGridX() + overlay.getWidth()) * Tile.LENGTH);
+            int bottom = camera.toScreenY((tileManager.getGridY() + overlay.getHeight()) * Tile.LENGTH);
+            g.drawImage(overlay, left, top, right - left, bottom - top, null);
         }
     }
 }
@@ -32,7 +32,7 @@ public class MenuState extends State {
      */
     public MenuState(Canvas canvas) {
         super(canvas);
-        load();
+        warm();
         
         background = Assets.menuBackground;
         settingsButton = Assets.settingsButton;
@@ -92,6 +92,15 @@ public class MenuState extends State {
         Assets.unloadMenuAssets();
     }
 
+    /**
+     * The background fills the screen, and the rest of the menu is small next to it
+     * @see state.State#getFootprint()
+     */
+    @Override
+    protected long getFootprint() {
+        return 4L * background.width * background.height;
+    }
+
     /* (non-Javadoc)
      * @see state.State#handlePress(java.awt.event.MouseEvent)
      */
@@ -5,17 +5,27 @@ package state;
 
 import java.awt.Canvas;
 import java.awt.Graphics;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 
 import model.MouseWatcher;
+import model.TextureCache;
+import model.TextureCache.Texture;
+import view.DirtyRegion;
 import view.LayerManager;
 import view.SpriteSheet;
 
 /**
  * A section of the game responsible for loading and managing assets as well as displaying them to the screen
  * Analogous to a screen (menu screen, settings screen, game screen, etc.)
+ * <p>
+ * A State can be loaded in the background before it is needed (see {@link state.State#preload(State)}), so that
+ * switching to it does not stop the game. States stay loaded after they are left, so that switching back is just
+ * as quick, until the States which are loaded but not current hold more than {@link state.State#WARM_BUDGET}
+ * bytes; then the least recently used of them are unloaded.
  * @author Spencer Yoder
  */
 public abstract class State {
@@ -26,8 +36,20 @@ public abstract class State {
     /** The {@link view.LayerManager} */
     protected LayerManager layerManager;
     
+    /** How many bytes the States which are loaded but not current may hold (see {@link state.State#getFootprint()}) */
+    public static final long WARM_BUDGET = 64L * 1024 * 1024;
+    
     /** The current State */
-    private static State currentState;
+    private static volatile State currentState;
+    /** The States which are loaded, from the most recently used to the least recently used */
+    private static final ArrayList<State> warm = new ArrayList<State>();
+    
+    /** Whether or not the assets of this State are loaded */
+    private volatile boolean loaded;
+    /** The Thread loading this State in the background (null if it is not being preloaded), guarded by warm */
+    private Thread preloader;
+    /** The textures this State has acquired while loading, which it releases when it is unloaded */
+    private ArrayList<Texture> textures = new ArrayList<Texture>();
     
     /**
      * Constructs a new State with the given Canvas
@@ -40,17 +62,158 @@ public abstract class State {
     }
     
     /**
-     * Sets the current State to be the given State
+     * Sets the current State to be the given State.
+     * If the State is not loaded yet it is loaded first (or waited for, if it is being preloaded), and the
+     * loading screen is shown until it is. The State that was current stays loaded (see {@link state.State#trim()}).
      * @param state the new State
      */
     public static void setState(State state) {
         if(currentState != null) {
-            State previous = currentState;
             currentState = null;
-            previous.unload();
-            state.load();
+            state.warm();
         }
         currentState = state;
+        trim();
+        DirtyRegion.addAll();
+    }
+    
+    /**
+     * Starts loading the given State on a background Thread, unless it is loaded or being loaded already,
+     * so that switching to it later does not have to wait.
+     * If the State is loaded by another Thread first, the background Thread does not load it again.
+     * @param state the State to load
+     */
+    public static void preload(final State state) {
+        Thread preloader;
+        synchronized(warm) {
+            if(state.preloader != null || state.loaded) {
+                return;
+            }
+            preloader = new Thread("Preload " + state.getClass().getSimpleName()) {
+                @Override
+                public void run() {
+                    state.warm();
+                }
+            };
+            state.preloader = preloader;
+        }
+        //The field can be cleared by warm() as soon as the lock is let go, so the local Thread is started
+        preloader.setDaemon(true);
+        preloader.start();
+    }
+    
+    /**
+     * Unloads the given State now, instead of keeping it loaded until the budget runs out.
+     * Does nothing if the State is current or not loaded.
+     * @param state the State to unload
+     */
+    public static void discard(State state) {
+        if(state != currentState) {
+            state.cool();
+        }
+    }
+    
+    /**
+     * Unloads the least recently used States which are not current until the rest fit in
+     * {@link state.State#WARM_BUDGET}
+     */
+    private static void trim() {
+        State[] states;
+        synchronized(warm) {
+            states = warm.toArray(new State[warm.size()]);
+        }
+        long bytes = 0;
+        for(int k = 0; k < states.length; k++) {
+            if(states[k] != currentState) {
+                bytes += states[k].getFootprint();
+                if(bytes > WARM_BUDGET) {
+                    states[k].cool();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Loads this State if it is not loaded already and makes it the most recently used State.
+     * If it is being loaded on another Thread, this waits until that is done.
+     */
+    protected synchronized void warm() {
+        if(!loaded) {
+            load();
+            loaded = true;
+        }
+        synchronized(warm) {
+            warm.remove(this);
+            warm.add(0, this);
+            preloader = null;
+        }
+    }
+    
+    /**
+     * Unloads this State if it is loaded
+     */
+    private synchronized void cool() {
+        if(loaded) {
+            unload();
+            loaded = false;
+            for(int k = 0; k < textures.size(); k++) {
+                textures.get(k).release();
+            }
+            textures.clear();
+        }
+        synchronized(warm) {
+            warm.remove(this);
+        }
+    }
+    
+    /**
+     * Keeps the given texture loaded until this State is unloaded
+     * @param texture the texture
+     * @see model.TextureCache.Texture#acquire()
+     */
+    protected void useTexture(Texture texture) {
+        texture.acquire();
+        textures.add(texture);
+    }
+    
+    /**
+     * Keeps the texture with the given path loaded until this State is unloaded
+     * @param path the path of the texture in the form "/textures/[filename]"
+     * @return the texture
+     */
+    protected BufferedImage useTexture(String path) {
+        Texture texture = TextureCache.get(path);
+        useTexture(texture);
+        return texture.getImage();
+    }
+    
+    /**
+     * @return whether or not the assets of this State are loaded
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * @return roughly how many bytes this State holds while it is loaded, which is weighed against
+     * {@link state.State#WARM_BUDGET} (0 unless overridden)
+     */
+    protected long getFootprint() {
+        return 0;
+    }
+    
+    /**
+     * @return the LayerManager which draws the Components of this State
+     */
+    public LayerManager getLayerManager() {
+        return layerManager;
+    }
+    
+    /**
+     * @return the MouseWatcher which tracks the Components of this State the mouse can interact with
+     */
+    public MouseWatcher getMouseWatcher() {
+        return mouseWatcher;
     }
     
     /**
@@ -109,4 +272,20 @@ public abstract class State {
     public void handleScroll(MouseWheelEvent e) {
       //Override this method with behavior, otherwise, this method does nothing
     }
+    
+    /**
+     * The code that is run when a key is pressed on the current State
+     * @param e the KeyEvent (which key)
+     */
+    public void handleKeyPress(KeyEvent e) {
+      //Override this method with behavior, otherwise, this method does nothing
+    }
+    
+    /**
+     * The code that is run when a key is released on the current State
+     * @param e the KeyEvent (which key)
+     */
+    public void handleKeyRelease(KeyEvent e) {
+      //Override this method with behavior, otherwise, this method does nothing
+    }
 }
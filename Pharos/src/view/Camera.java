@@ -0,0 +1,242 @@
+/**
+ * 
+ */
+package view;
+
+/**
+ * A class for the part of the world that is shown on screen.
+ * The Camera has a position in world pixels (a Tile at global column x and row y covers the world pixels from
+ * x * {@link component.Tile#LENGTH} to (x + 1) * {@link component.Tile#LENGTH}) which is kept to a fraction of
+ * a pixel, so it can glide smoothly instead of jumping a Tile at a time. Rendering and picking both go through
+ * {@link view.Camera#getOffsetX()} and {@link view.Camera#getOffsetY()}, so what the mouse points at is
+ * always what is drawn under it. The Camera can also zoom, in which case world pixels are scaled by
+ * {@link view.Camera#getZoom()} on their way to the screen.
+ */
+public class Camera {
+    /** How many pixels the Camera pans each tick while a pan key is held */
+    public static final double PAN_SPEED = 12;
+    /** The fraction of the remaining distance to its target the Camera covers each tick */
+    private static final double EASING = 0.25;
+    /** How much one notch of the mouse wheel zooms in or out by */
+    public static final double ZOOM_STEP = Math.sqrt(2);
+    /** The furthest the Camera can zoom in */
+    public static final double MAX_ZOOM = 2;
+    /** The furthest the Camera can zoom out, unless the whole world already fits on screen before that */
+    public static final double MIN_ZOOM = 0.125;
+
+    /** The world position (in pixels) of the top-left corner of the screen */
+    private double x, y;
+    /** The world position (in pixels) the Camera is gliding towards */
+    private double targetX, targetY;
+    /** The direction (-1, 0 or 1 on each axis) the Camera is being panned in */
+    private int panX, panY;
+    /** The size (in pixels) of the screen */
+    private int viewWidth, viewHeight;
+    /** The part of the world (in pixels) the screen must stay inside */
+    private int minX, minY, maxX, maxY;
+    /** The offsets last reported by {@link view.Camera#tick()} */
+    private int lastOffsetX, lastOffsetY;
+    /** How many screen pixels one world pixel covers (1 when not zoomed) */
+    private double zoom = 1;
+
+    /**
+     * Constructs a new Camera for a screen of the given size
+     * @param viewWidth the width of the screen in pixels
+     * @param viewHeight the height of the screen in pixels
+     */
+    public Camera(int viewWidth, int viewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+    }
+
+    /**
+     * Sets the part of the world the screen must stay inside, usually the extent of the loaded Tiles
+     * @param minX the left edge in world pixels
+     * @param minY the top edge in world pixels
+     * @param maxX the right edge in world pixels
+     * @param maxY the bottom edge in world pixels
+     */
+    public void setBounds(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        moveTo(x, y);
+    }
+
+    /**
+     * Moves the Camera to the given world position at once
+     * @param x the world x position (in pixels) of the left edge of the screen
+     * @param y the world y position (in pixels) of the top edge of the screen
+     */
+    public void moveTo(double x, double y) {
+        this.x = targetX = clampX(x);
+        this.y = targetY = clampY(y);
+    }
+
+    /**
+     * Makes the Camera glide to the given world position over the next few ticks
+     * @param x the world x position (in pixels) of the left edge of the screen
+     * @param y the world y position (in pixels) of the top edge of the screen
+     */
+    public void panTo(double x, double y) {
+        targetX = clampX(x);
+        targetY = clampY(y);
+    }
+
+    /**
+     * Sets the direction the Camera is panned in every tick
+     * @param dx -1 to pan left, 1 to pan right, 0 to stop panning horizontally
+     * @param dy -1 to pan up, 1 to pan down, 0 to stop panning vertically
+     */
+    public void setPan(int dx, int dy) {
+        panX = dx;
+        panY = dy;
+    }
+
+    /**
+     * Zooms in or out by the given number of notches of the mouse wheel, keeping the world position under the
+     * given screen position where it is. The whole screen is marked as needing to be redrawn.
+     * @param steps how many notches to zoom (negative to zoom in, positive to zoom out)
+     * @param anchorX the screen x position (in pixels) which stays fixed, usually the mouse
+     * @param anchorY the screen y position (in pixels) which stays fixed, usually the mouse
+     */
+    public void zoomBy(int steps, int anchorX, int anchorY) {
+        double minZoom = Math.max(MIN_ZOOM, Math.max((double) viewWidth / (maxX - minX),
+                (double) viewHeight / (maxY - minY)));
+        double newZoom = Math.max(minZoom, Math.min(MAX_ZOOM, zoom * Math.pow(ZOOM_STEP, -steps)));
+        if(newZoom == zoom) {
+            return;
+        }
+        double worldX = x + anchorX / zoom;
+        double worldY = y + anchorY / zoom;
+        zoom = newZoom;
+        moveTo(worldX - anchorX / zoom, worldY - anchorY / zoom);
+        lastOffsetX = getOffsetX();
+        lastOffsetY = getOffsetY();
+        DirtyRegion.addAll();
+    }
+
+    /**
+     * @return how many screen pixels one world pixel covers (less than 1 when zoomed out)
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * @param levels how many mipmap levels there are, including the full size textures
+     * @return the mipmap level whose textures are closest in size to how big they are drawn at the current zoom
+     * (0 unless zoomed out)
+     * @see view.SpriteSheet#generateMipmaps(int)
+     */
+    public int getMipLevel(int levels) {
+        if(zoom >= 1) {
+            return 0;
+        }
+        int level = (int) Math.round(Math.log(1 / zoom) / Math.log(2));
+        return Math.min(level, levels - 1);
+    }
+
+    /**
+     * Moves the Camera towards its target. If this changes what is on screen, the whole screen is marked
+     * as needing to be redrawn.
+     * @return true if the offsets changed
+     */
+    public boolean tick() {
+        if(panX != 0 || panY != 0) {
+            panTo(targetX + panX * PAN_SPEED, targetY + panY * PAN_SPEED);
+        }
+        x = approach(x, targetX);
+        y = approach(y, targetY);
+        if(getOffsetX() != lastOffsetX || getOffsetY() != lastOffsetY) {
+            lastOffsetX = getOffsetX();
+            lastOffsetY = getOffsetY();
+            DirtyRegion.addAll();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the world x position (in pixels) drawn at the left edge of the screen
+     */
+    public int getOffsetX() {
+        return (int) Math.floor(x);
+    }
+
+    /**
+     * @return the world y position (in pixels) drawn at the top edge of the screen
+     */
+    public int getOffsetY() {
+        return (int) Math.floor(y);
+    }
+
+    /**
+     * @return the given world x position converted to a screen x position (both in pixels)
+     */
+    public int toScreenX(int worldX) {
+        return (int) Math.floor((worldX - getOffsetX()) * zoom);
+    }
+
+    /**
+     * @return the given world y position converted to a screen y position (both in pixels)
+     */
+    public int toScreenY(int worldY) {
+        return (int) Math.floor((worldY - getOffsetY()) * zoom);
+    }
+
+    /**
+     * @return the given screen x position converted to a world x position (both in pixels)
+     */
+    public int toWorldX(int screenX) {
+        return (int) Math.floor(screenX / zoom) + getOffsetX();
+    }
+
+    /**
+     * @return the given screen y position converted to a world y position (both in pixels)
+     */
+    public int toWorldY(int screenY) {
+        return (int) Math.floor(screenY / zoom) + getOffsetY();
+    }
+
+    /**
+     * @return the width of the screen in pixels
+     */
+    public int getViewWidth() {
+        return viewWidth;
+    }
+
+    /**
+     * @return the height of the screen in pixels
+     */
+    public int getViewHeight() {
+        return viewHeight;
+    }
+
+    /**
+     * @return the given position moved towards the target by {@link view.Camera#EASING},
+     * or the target if it is less than a pixel away
+     */
+    private double approach(double from, double to) {
+        double step = (to - from) * EASING;
+        if(Math.abs(to - from) < 1) {
+            return to;
+        }
+        return from + step;
+    }
+
+    /**
+     * @return the given x position moved inside the bounds (the left edge if the world is narrower than the screen)
+     */
+    private double clampX(double x) {
+        return Math.max(minX, Math.min(x, maxX - viewWidth / zoom));
+    }
+
+    /**
+     * @return the given y position moved inside the bounds (the top edge if the world is shorter than the screen)
+     */
+    private double clampY(double y) {
+        return Math.max(minY, Math.min(y, maxY - viewHeight / zoom));
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * 
+ */
+package view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferStrategy;
+import java.awt.image.VolatileImage;
+
+/**
+ * A Renderer which draws frames to the game window through the {@link java.awt.image.BufferStrategy} of its
+ * {@link view.GameCanvas}, scaled to fit the canvas.
+ * If the game is drawn at its logical size without dirty rendering, each frame is drawn straight to the window.
+ * Otherwise it is drawn into a back buffer (or a {@link view.Framebuffer} with software rendering) at the render
+ * resolution, which is then scaled to fit the window.
+ */
+public class CanvasRenderer implements Renderer {
+    /** The canvas the frames are shown on */
+    private GameCanvas canvas;
+    /** The logical width and height of the game */
+    private int width, height;
+    /** The size of the render resolution compared to the logical size (1 to draw at the logical size) */
+    private double renderScale;
+    /** Whether or not only the parts of the screen that changed are redrawn each frame */
+    private boolean dirtyRendering;
+    /** Whether or not frames are drawn into a {@link view.Framebuffer} instead of the back buffer */
+    private boolean softwareRendering;
+    /** The {@link java.awt.image.BufferStrategy} for displaying each frame of the game */
+    private BufferStrategy bs;
+    /** The Graphics of the window for the frame being drawn */
+    private Graphics2D screen;
+    /** The Graphics the frame being drawn is drawn to (the same as screen if it is drawn straight to the window) */
+    private Graphics2D frame;
+    /** The part of the canvas the frame being drawn is shown in */
+    private Rectangle viewport;
+    /** The image each frame is drawn into at the render resolution before it is scaled to the window.
+     * It persists between frames when dirty rendering is turned on */
+    private VolatileImage backBuffer;
+    /** The image each frame is drawn into when software rendering is turned on */
+    private Framebuffer framebuffer;
+
+    /**
+     * Constructs a new CanvasRenderer
+     * @param canvas the canvas to show the frames on
+     * @param width the logical width of the game
+     * @param height the logical height of the game
+     * @param renderScale the render resolution compared to the logical size (1 to draw at the logical size)
+     * @param dirtyRendering whether or not to only redraw the parts of the screen reported to the
+     * {@link view.DirtyRegion} into a back buffer which persists between frames
+     * @param softwareRendering whether or not to draw into a {@link view.Framebuffer}
+     */
+    public CanvasRenderer(GameCanvas canvas, int width, int height, double renderScale, boolean dirtyRendering,
+            boolean softwareRendering) {
+        this.canvas = canvas;
+        this.width = width;
+        this.height = height;
+        this.renderScale = renderScale;
+        this.dirtyRendering = dirtyRendering;
+        this.softwareRendering = softwareRendering;
+    }
+
+    /**
+     * Starts drawing a frame. The BufferStrategy is created the first time, in which case no frame is drawn.
+     * @see view.Renderer#beginFrame()
+     */
+    @Override
+    public Graphics2D beginFrame() {
+        bs = canvas.getBufferStrategy();
+        if(bs == null) {
+            canvas.createBufferStrategy(3);
+            return null;
+        }
+        screen = (Graphics2D) bs.getDrawGraphics();
+        viewport = canvas.getViewport();
+        screen.setColor(Color.BLACK);
+        screen.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if(softwareRendering) {
+            if(framebuffer == null) {
+                framebuffer = new Framebuffer((int) Math.ceil(width * renderScale),
+                        (int) Math.ceil(height * renderScale));
+                DirtyRegion.addAll();
+            }
+            frame = framebuffer.getImage().createGraphics();
+            Framebuffer.setActive(framebuffer);
+        } else if(dirtyRendering || renderScale != 1) {
+            validateBackBuffer();
+            frame = backBuffer.createGraphics();
+        } else {
+            frame = screen;
+            frame.translate(viewport.x, viewport.y);
+            frame.scale((double) viewport.width / width, (double) viewport.height / height);
+            frame.clearRect(0, 0, width, height);
+            return frame;
+        }
+        frame.scale(renderScale, renderScale);
+        if(dirtyRendering) {
+            frame.setClip(DirtyRegion.take(width, height));
+        }
+        frame.clearRect(0, 0, width, height);
+        return frame;
+    }
+
+    /**
+     * Scales the frame to the window and shows it
+     * @see view.Renderer#endFrame()
+     */
+    @Override
+    public void endFrame() {
+        Framebuffer.setActive(null);
+        if(frame != screen) {
+            frame.dispose();
+            screen.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            screen.drawImage(softwareRendering ? framebuffer.getImage() : backBuffer,
+                    viewport.x, viewport.y, viewport.width, viewport.height, null);
+        }
+        bs.show();
+        screen.dispose();
+        frame = screen = null;
+        if(bs.contentsLost() || backBuffer != null && backBuffer.contentsLost()) {
+            DirtyRegion.addAll();
+        }
+    }
+
+    /**
+     * Makes sure the back buffer exists and is compatible with the canvas.
+     * The whole back buffer is redrawn if its contents were lost.
+     */
+    private void validateBackBuffer() {
+        GraphicsConfiguration gc = canvas.getGraphicsConfiguration();
+        int status = backBuffer == null ? VolatileImage.IMAGE_INCOMPATIBLE : backBuffer.validate(gc);
+        if(status == VolatileImage.IMAGE_INCOMPATIBLE) {
+            backBuffer = gc.createCompatibleVolatileImage((int) Math.ceil(width * renderScale),
+                    (int) Math.ceil(height * renderScale));
+            DirtyRegion.addAll();
+        } else if(status == VolatileImage.IMAGE_RESTORED) {
+            DirtyRegion.addAll();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ * 
+ */
+package view;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import component.Component;
+import model.GameMetrics;
+
+/**
+ * A panel drawn over the game which shows how the game is running: the frames and ticks per second, a graph of
+ * how long recent ticks and frames took, garbage collections, heap use, and the counters of the
+ * {@link model.GameMetrics}. It is shown with {@link view.LayerManager#setOverlay(Component)}.
+ * <p>
+ * So that the overlay does not change what it measures, it is only drawn a few times a second, into one image
+ * which is kept for its lifetime, and drawing it allocates nothing (the text is written into an array of chars
+ * instead of Strings). Every other frame it only draws that image.
+ */
+public class DebugOverlay extends Component {
+    /** How often the overlay is redrawn (in nanoseconds) */
+    public static final long UPDATE_INTERVAL = 250000000L;
+    /** How many ticks and frames the graph shows (one column of pixels each) */
+    private static final int GRAPH_SAMPLES = 240;
+    /** The height (in pixels) of the graph */
+    private static final int GRAPH_HEIGHT = 64;
+    /** How long (in nanoseconds) a tick and frame together take to fill the height of the graph (two frames at
+     * 60 fps) */
+    private static final long GRAPH_SCALE = 33333333L;
+    /** How long (in nanoseconds) a tick and frame together can take while keeping 60 fps */
+    private static final long FRAME_BUDGET = 16666667L;
+    /** The space (in pixels) around the edges of the overlay */
+    private static final int PADDING = 6;
+    /** The height (in pixels) of a line of text */
+    private static final int LINE_HEIGHT = 14;
+    /** The color behind the overlay */
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    /** The color of the text */
+    private static final Color TEXT = Color.WHITE;
+    /** The color of the time ticks took in the graph */
+    private static final Color TICK = new Color(255, 170, 40);
+    /** The color of the time drawing took in the graph */
+    private static final Color RENDER = new Color(70, 200, 255);
+    /** The color of the line for {@link view.DebugOverlay#FRAME_BUDGET} in the graph */
+    private static final Color BUDGET = new Color(255, 60, 60);
+
+    /** Where the numbers come from */
+    private GameMetrics metrics;
+    /** Draws into the texture of the overlay */
+    private Graphics2D painter;
+    /** The garbage collectors of the JVM */
+    private List<GarbageCollectorMXBean> collectors;
+    /** How long recent ticks took (in nanoseconds) */
+    private long[] ticks;
+    /** How long drawing recent frames took (in nanoseconds) */
+    private long[] frames;
+    /** The line of text being written */
+    private char[] line;
+    /** How many chars of the line are written */
+    private int length;
+    /** The y position (in the texture) of the next line of text */
+    private int lineY;
+    /** When the overlay was last redrawn (from {@link java.lang.System#nanoTime()}) */
+    private long lastUpdate;
+    /** Whether or not the overlay has been drawn yet */
+    private boolean drawn;
+
+    /**
+     * Constructs a new DebugOverlay in the top-left corner of the screen
+     * @param metrics where the numbers the overlay shows come from
+     */
+    public DebugOverlay(GameMetrics metrics) {
+        super(new BufferedImage(GRAPH_SAMPLES + 2 * PADDING, 7 * LINE_HEIGHT + GRAPH_HEIGHT + 3 * PADDING,
+                BufferedImage.TYPE_INT_ARGB));
+        this.metrics = metrics;
+        painter = texture.createGraphics();
+        painter.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        ticks = new long[GRAPH_SAMPLES];
+        frames = new long[GRAPH_SAMPLES];
+        line = new char[64];
+        place(8, 8);
+    }
+
+    /**
+     * Redraws the overlay if it has not been redrawn for {@link view.DebugOverlay#UPDATE_INTERVAL}, then draws it
+     * @see component.Component#render(java.awt.Graphics)
+     */
+    @Override
+    public void render(Graphics g) {
+        long now = System.nanoTime();
+        if(!drawn || now - lastUpdate >= UPDATE_INTERVAL) {
+            update();
+            lastUpdate = now;
+            drawn = true;
+        }
+        super.render(g);
+    }
+
+    /**
+     * Redraws the texture of the overlay from the current numbers
+     */
+    private void update() {
+        painter.setComposite(AlphaComposite.Src);
+        painter.setColor(BACKGROUND);
+        painter.fillRect(0, 0, width, height);
+        painter.setComposite(AlphaComposite.SrcOver);
+        lineY = PADDING;
+
+        int tickCount = metrics.getRecentTicks(ticks);
+        int frameCount = metrics.getRecentFrames(frames);
+        start("FPS ");
+        append(metrics.getFramesPerSecond());
+        append("  TPS ");
+        append(metrics.getTicksPerSecond());
+        finish();
+        start("tick avg ");
+        appendMillis(average(ticks, tickCount));
+        append(" max ");
+        appendMillis(max(ticks, tickCount));
+        append(" ms");
+        finish();
+        start("draw avg ");
+        appendMillis(average(frames, frameCount));
+        append(" max ");
+        appendMillis(max(frames, frameCount));
+        append(" ms");
+        finish();
+        drawGraph(Math.min(tickCount, frameCount), tickCount, frameCount);
+
+        long collections = 0;
+        long collectionTime = 0;
+        for(int k = 0; k < collectors.size(); k++) {
+            collections += Math.max(0, collectors.get(k).getCollectionCount());
+            collectionTime += Math.max(0, collectors.get(k).getCollectionTime());
+        }
+        Runtime runtime = Runtime.getRuntime();
+        start("GC ");
+        append(collections);
+        append(" (");
+        append(collectionTime);
+        append(" ms)  heap ");
+        append((runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        append('/');
+        append(runtime.maxMemory() >> 20);
+        append(" MB");
+        finish();
+        start("tiles ");
+        append(metrics.getTileCount());
+        append("  items ");
+        append(metrics.getItemCount());
+        append("  chunks ");
+        append(metrics.getResidentChunkCount());
+        finish();
+        start("layers ");
+        append(metrics.getLayerCount());
+        append(" (");
+        append(metrics.getTemporaryLayerCount());
+        append(")  mouse ");
+        append(metrics.getMouseWatcherCount());
+        append(" (");
+        append(metrics.getTemporaryMouseWatcherCount());
+        append(')');
+        finish();
+        start("textures ");
+        append(metrics.getTextureBytes() >> 10);
+        append(" KB");
+        finish();
+        markDirty();
+    }
+
+    /**
+     * Draws the graph of the given number of the most recent ticks and frames, each as one column with the time
+     * the tick took at the bottom and the time drawing took above it
+     * @param samples how many columns to draw
+     * @param tickCount how many ticks are in {@link view.DebugOverlay#ticks}
+     * @param frameCount how many frames are in {@link view.DebugOverlay#frames}
+     */
+    private void drawGraph(int samples, int tickCount, int frameCount) {
+        int bottom = lineY + GRAPH_HEIGHT;
+        int left = PADDING + GRAPH_SAMPLES - samples;
+        for(int k = 0; k < samples; k++) {
+            int tickHeight = toPixels(ticks[tickCount - samples + k]);
+            int renderHeight = Math.min(GRAPH_HEIGHT - tickHeight, toPixels(frames[frameCount - samples + k]));
+            painter.setColor(TICK);
+            painter.fillRect(left + k, bottom - tickHeight, 1, tickHeight);
+            painter.setColor(RENDER);
+            painter.fillRect(left + k, bottom - tickHeight - renderHeight, 1, renderHeight);
+        }
+        painter.setColor(BUDGET);
+        painter.fillRect(PADDING, bottom - toPixels(FRAME_BUDGET), GRAPH_SAMPLES, 1);
+        lineY = bottom + PADDING;
+    }
+
+    /**
+     * @param nanos a time (in nanoseconds)
+     * @return the height (in pixels) of the given time in the graph
+     */
+    private static int toPixels(long nanos) {
+        return (int) Math.min(GRAPH_HEIGHT, nanos * GRAPH_HEIGHT / GRAPH_SCALE);
+    }
+
+    /**
+     * @return the average of the first count values (0 if there are none)
+     */
+    private static long average(long[] values, int count) {
+        long sum = 0;
+        for(int k = 0; k < count; k++) {
+            sum += values[k];
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @return the largest of the first count values (0 if there are none)
+     */
+    private static long max(long[] values, int count) {
+        long max = 0;
+        for(int k = 0; k < count; k++) {
+            max = Math.max(max, values[k]);
+        }
+        return max;
+    }
+
+    /**
+     * Starts a new line of text with the given text
+     * @param s the text
+     */
+    private void start(String s) {
+        length = 0;
+        append(s);
+    }
+
+    /**
+     * Draws the line of text and moves down to the next one
+     */
+    private void finish() {
+        painter.setColor(TEXT);
+        painter.drawChars(line, 0, length, PADDING, lineY + LINE_HEIGHT - 3);
+        lineY += LINE_HEIGHT;
+    }
+
+    /**
+     * Adds the given text to the line, cutting it off if the line is full
+     * @param s the text
+     */
+    private void append(String s) {
+        for(int k = 0; k < s.length(); k++) {
+            append(s.charAt(k));
+        }
+    }
+
+    /**
+     * Adds the given char to the line, unless the line is full
+     * @param c the char
+     */
+    private void append(char c) {
+        if(length < line.length) {
+            line[length++] = c;
+        }
+    }
+
+    /**
+     * Adds the given number to the line
+     * @param n the number
+     */
+    private void append(long n) {
+        if(n < 0) {
+            append('-');
+            n = -n;
+        }
+        long place = 1;
+        while(place <= n / 10) {
+            place *= 10;
+        }
+        for(; place > 0; place /= 10) {
+            append((char) ('0' + n / place % 10));
+        }
+    }
+
+    /**
+     * Adds the given time to the line in milliseconds, to two decimal places
+     * @param nanos the time (in nanoseconds)
+     */
+    private void appendMillis(long nanos) {
+        long hundredths = (nanos + 5000) / 10000;
+        append(hundredths / 100);
+        append('.');
+        append((char) ('0' + hundredths / 10 % 10));
+        append((char) ('0' + hundredths % 10));
+    }
+}
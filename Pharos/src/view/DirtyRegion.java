@@ -0,0 +1,192 @@
+/**
+ * 
+ */
+package view;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+
+/**
+ * A class which keeps track of the parts of the screen that have changed since the last frame.
+ * Components report when they move or change texture, and the TileManager reports when the grid is edited.
+ * When dirty rendering is turned on, the {@link model.Game} only redraws the union of these rectangles.
+ * Changes reported while a frame is being drawn are redrawn in the following frame.
+ * The rectangles of a clip never overlap, so drawing which does not go through a Graphics (like into a
+ * {@link view.Framebuffer}) can split the clip back into them and draw each pixel once (see
+ * {@link view.DirtyRegion#split(Shape)}).
+ */
+public class DirtyRegion {
+    /** The most rectangles kept before they are merged into their bounding box */
+    private static final int MAX_RECTANGLES = 32;
+    /** The dirty rectangles (only the first count are in use) */
+    private static Rectangle[] rects = new Rectangle[MAX_RECTANGLES];
+    /** The number of dirty rectangles */
+    private static int count;
+    /** Whether or not the entire screen needs to be redrawn */
+    private static boolean everything = true;
+    
+    /**
+     * Marks the given rectangle (in pixels) as needing to be redrawn
+     * @param x the x position of the top-left corner
+     * @param y the y position of the top-left corner
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     */
+    public static synchronized void add(int x, int y, int width, int height) {
+        if(everything || width <= 0 || height <= 0) {
+            return;
+        }
+        for(int i = 0; i < count; i++) {
+            Rectangle r = rects[i];
+            if(x <= r.x + r.width && r.x <= x + width && y <= r.y + r.height && r.y <= y + height) {
+                r.add(new Rectangle(x, y, width, height));
+                return;
+            }
+        }
+        if(count == MAX_RECTANGLES) {
+            for(int i = 1; i < count; i++) {
+                rects[0].add(rects[i]);
+            }
+            count = 1;
+            rects[0].add(new Rectangle(x, y, width, height));
+        } else {
+            rects[count++] = new Rectangle(x, y, width, height);
+        }
+    }
+    
+    /**
+     * Marks the entire screen as needing to be redrawn
+     */
+    public static synchronized void addAll() {
+        everything = true;
+        count = 0;
+    }
+    
+    /**
+     * Empties the region
+     * @param width the width of the screen
+     * @param height the height of the screen
+     * @return the union of the dirty rectangles as a clip for the next frame
+     * (an empty rectangle if nothing has changed). Rectangles which overlap are merged into their bounding box first.
+     */
+    public static synchronized Shape take(int width, int height) {
+        if(everything) {
+            everything = false;
+            return new Rectangle(0, 0, width, height);
+        }
+        if(count == 0) {
+            return new Rectangle();
+        }
+        mergeOverlapping();
+        GeneralPath region = new GeneralPath(GeneralPath.WIND_NON_ZERO);
+        for(int i = 0; i < count; i++) {
+            region.append(rects[i], false);
+        }
+        count = 0;
+        return region;
+    }
+    
+    /**
+     * Splits a clip back into the rectangles it was made of
+     * @param clip a clip from {@link view.DirtyRegion#take(int, int)} (or any other clip)
+     * @return the rectangles, which do not overlap, or null if the clip is not made of rectangles lined up with the
+     * pixels which do not overlap (so it cannot be drawn one rectangle at a time)
+     */
+    public static Rectangle[] split(Shape clip) {
+        if(clip instanceof Rectangle) {
+            return new Rectangle[] {(Rectangle) clip};
+        }
+        ArrayList<Rectangle> parts = new ArrayList<Rectangle>();
+        double[] coords = new double[6];
+        double[] corners = new double[8];
+        int points = 0;
+        for(PathIterator it = clip.getPathIterator(null); !it.isDone(); it.next()) {
+            int segment = it.currentSegment(coords);
+            if(segment == PathIterator.SEG_MOVETO || segment == PathIterator.SEG_CLOSE) {
+                if(points > 0 && !addRectangle(parts, corners, points)) {
+                    return null;
+                }
+                points = 0;
+            } else if(segment != PathIterator.SEG_LINETO) {
+                return null;
+            }
+            if(segment != PathIterator.SEG_CLOSE) {
+                if(points == 4) {
+                    //A rectangle can end by going back to its first corner
+                    if(coords[0] != corners[0] || coords[1] != corners[1]) {
+                        return null;
+                    }
+                    continue;
+                }
+                corners[points * 2] = coords[0];
+                corners[points * 2 + 1] = coords[1];
+                points++;
+            }
+        }
+        if(points > 0 && !addRectangle(parts, corners, points)) {
+            return null;
+        }
+        for(int i = 0; i < parts.size(); i++) {
+            for(int k = i + 1; k < parts.size(); k++) {
+                if(parts.get(i).intersects(parts.get(k))) {
+                    return null;
+                }
+            }
+        }
+        return parts.toArray(new Rectangle[parts.size()]);
+    }
+    
+    /**
+     * Adds the rectangle with the given corners to the list if they are the corners of a rectangle lined up with
+     * the pixels
+     * @param parts the list of rectangles
+     * @param corners the corners in the format {x0, y0, x1, y1, ...}, in order around the rectangle
+     * @param points how many corners there are
+     * @return false if the corners are not the corners of such a rectangle
+     */
+    private static boolean addRectangle(ArrayList<Rectangle> parts, double[] corners, int points) {
+        if(points != 4) {
+            return false;
+        }
+        for(int k = 0; k < 8; k++) {
+            if(corners[k] != Math.rint(corners[k])) {
+                return false;
+            }
+        }
+        for(int k = 0; k < 4; k++) {
+            int next = (k + 1) % 4;
+            if(corners[k * 2] != corners[next * 2] && corners[k * 2 + 1] != corners[next * 2 + 1]) {
+                return false;
+            }
+        }
+        int left = (int) Math.min(corners[0], corners[4]);
+        int top = (int) Math.min(corners[1], corners[5]);
+        int right = (int) Math.max(corners[0], corners[4]);
+        int bottom = (int) Math.max(corners[1], corners[5]);
+        parts.add(new Rectangle(left, top, right - left, bottom - top));
+        return true;
+    }
+    
+    /**
+     * Merges rectangles which overlap into their bounding box until none of them overlap
+     */
+    private static void mergeOverlapping() {
+        boolean merged = true;
+        while(merged) {
+            merged = false;
+            for(int i = 0; i < count && !merged; i++) {
+                for(int k = i + 1; k < count; k++) {
+                    if(rects[i].intersects(rects[k])) {
+                        rects[i].add(rects[k]);
+                        rects[k] = rects[--count];
+                        merged = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -3,7 +3,6 @@
  */
 package view;
 
-import java.awt.Canvas;
 import java.awt.Dimension;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
@@ -11,7 +10,8 @@ import java.awt.event.MouseListener;
 import javax.swing.JFrame;
 
 /**
- * A class for the game window
+ * A class for the game window. The window can be resized, and the game is scaled to fit it
+ * (see {@link view.GameCanvas}).
  * @author Spencer Yoder
  */
 public class Display {
@@ -19,10 +19,10 @@ public class Display {
     private JFrame frame;
     /** The title for the JFrame */
     private String title;
-    /** The width and height of the JFrame */
+    /** The starting width and height of the JFrame's contents */
     private int width, height;
     /** The part of the window to which things are drawn */
-    private Canvas canvas;
+    private GameCanvas canvas;
     
     /**
      * Constructs a new Display with the given JFrame title, width, and height
@@ -44,23 +44,23 @@ public class Display {
         frame = new JFrame(title);
         frame.setSize(width,height);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setResizable(false);
+        frame.setResizable(true);
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
         
-        canvas = new Canvas();
+        canvas = new GameCanvas(width, height);
         canvas.setPreferredSize(new Dimension(width, height));
-        canvas.setMaximumSize(new Dimension(width, height));
-        canvas.setMinimumSize(new Dimension(width, height));
+        canvas.setMinimumSize(new Dimension(width / 4, height / 4));
         
         frame.add(canvas);
         frame.pack();
+        canvas.requestFocus();
     }
     
     /**
      * @return the canvas
      */
-    public Canvas getCanvas() {
+    public GameCanvas getCanvas() {
         return canvas;
     }
 }
@@ -0,0 +1,139 @@
+/**
+ * 
+ */
+package view;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A class for an image whose pixels can be written directly, for drawing lots of Tiles without going through
+ * Java2D for each one. Opaque rows of a texture are copied with {@link System#arraycopy}, and textures with
+ * transparent pixels are blended one pixel at a time. The image can still be drawn to with a Graphics for
+ * everything else, and is shown on screen with a single drawImage.
+ * <p>
+ * While a frame is being drawn into a Framebuffer it is the active one (see
+ * {@link view.Framebuffer#getActive()}), so that Components which know how can draw into it directly.
+ */
+public class Framebuffer {
+    /** The Framebuffer the current frame is being drawn into (null if the frame is drawn with Java2D only) */
+    private static Framebuffer active;
+    /** The product of every pair of 8-bit values divided by 255, rounded the same way as Java2D rounds it
+     * when it blends, so that blending gives the same colors as drawing with a Graphics (in the format [a][b]) */
+    private static final byte[][] MULTIPLY = new byte[256][256];
+    static {
+        for(int a = 1; a < 256; a++) {
+            int step = 0x10101 * a;
+            int value = step + (1 << 23);
+            for(int b = 1; b < 256; b++) {
+                MULTIPLY[a][b] = (byte) (value >>> 24);
+                value += step;
+            }
+        }
+    }
+
+    /** The width and height of the Framebuffer in pixels */
+    public final int width, height;
+    /** The image the pixels belong to */
+    private BufferedImage image;
+    /** The pixels of the image as RGB, one row after another */
+    private int[] pixels;
+
+    /**
+     * Constructs a new, black Framebuffer of the given size
+     * @param width the width in pixels
+     * @param height the height in pixels
+     */
+    public Framebuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * @return the Framebuffer the current frame is being drawn into, or null if it is being drawn with Java2D only
+     */
+    public static Framebuffer getActive() {
+        return active;
+    }
+
+    /**
+     * @param framebuffer the Framebuffer the next frame is drawn into (null once the frame is done)
+     */
+    public static void setActive(Framebuffer framebuffer) {
+        active = framebuffer;
+    }
+
+    /**
+     * @return the image the pixels belong to, for drawing the rest of the frame with a Graphics and showing it
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Copies a rectangle of fully opaque pixels into the Framebuffer, one row at a time
+     * @param src the pixels of the source image as ARGB, one row after another
+     * @param stride the width of the source image
+     * @param sx the x position of the rectangle in the source image
+     * @param sy the y position of the rectangle in the source image
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @param dx the x position to copy the rectangle to
+     * @param dy the y position to copy the rectangle to
+     * @param clip the part of the Framebuffer which may be changed (null for all of it)
+     */
+    public void copy(int[] src, int stride, int sx, int sy, int w, int h, int dx, int dy, Rectangle clip) {
+        int left = Math.max(dx, clip == null ? 0 : Math.max(0, clip.x));
+        int top = Math.max(dy, clip == null ? 0 : Math.max(0, clip.y));
+        int right = Math.min(dx + w, clip == null ? width : Math.min(width, clip.x + clip.width));
+        int bottom = Math.min(dy + h, clip == null ? height : Math.min(height, clip.y + clip.height));
+        if(left >= right) {
+            return;
+        }
+        for(int y = top; y < bottom; y++) {
+            System.arraycopy(src, (sy + y - dy) * stride + sx + left - dx, pixels, y * width + left, right - left);
+        }
+    }
+
+    /**
+     * Draws a rectangle of pixels with transparency over the Framebuffer. Fully opaque pixels are copied, fully
+     * transparent ones are skipped, and the rest are blended with what is already there.
+     * @param src the pixels of the source image as ARGB, one row after another
+     * @param stride the width of the source image
+     * @param sx the x position of the rectangle in the source image
+     * @param sy the y position of the rectangle in the source image
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @param dx the x position to draw the rectangle at
+     * @param dy the y position to draw the rectangle at
+     * @param clip the part of the Framebuffer which may be changed (null for all of it)
+     */
+    public void blend(int[] src, int stride, int sx, int sy, int w, int h, int dx, int dy, Rectangle clip) {
+        int left = Math.max(dx, clip == null ? 0 : Math.max(0, clip.x));
+        int top = Math.max(dy, clip == null ? 0 : Math.max(0, clip.y));
+        int right = Math.min(dx + w, clip == null ? width : Math.min(width, clip.x + clip.width));
+        int bottom = Math.min(dy + h, clip == null ? height : Math.min(height, clip.y + clip.height));
+        for(int y = top; y < bottom; y++) {
+            int s = (sy + y - dy) * stride + sx + left - dx;
+            int d = y * width + left;
+            for(int x = left; x < right; x++, s++, d++) {
+                int p = src[s];
+                int a = p >>> 24;
+                if(a == 255) {
+                    pixels[d] = p;
+                } else if(a != 0) {
+                    int q = pixels[d];
+                    byte[] source = MULTIPLY[a];
+                    byte[] destination = MULTIPLY[255 - a];
+                    int r = (source[p >> 16 & 0xff] & 0xff) + (destination[q >> 16 & 0xff] & 0xff);
+                    int g = (source[p >> 8 & 0xff] & 0xff) + (destination[q >> 8 & 0xff] & 0xff);
+                    int b = (source[p & 0xff] & 0xff) + (destination[q & 0xff] & 0xff);
+                    pixels[d] = r << 16 | g << 8 | b;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * 
+ */
+package view;
+
+import java.awt.Canvas;
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+/**
+ * A class for the part of the window the game is drawn to.
+ * The game always works at the same logical size ({@link model.Game#width} by {@link model.Game#height}),
+ * and each frame is scaled to fit the canvas with black bars to keep its shape. The GameCanvas converts
+ * mouse positions back to logical pixels, so the rest of the game does not know how big the window is.
+ */
+public class GameCanvas extends Canvas {
+    private static final long serialVersionUID = 1L;
+    /** The logical size of the game in pixels */
+    private int logicalWidth, logicalHeight;
+
+    /**
+     * Constructs a new GameCanvas for a game of the given logical size
+     * @param logicalWidth the width of the game in logical pixels
+     * @param logicalHeight the height of the game in logical pixels
+     */
+    public GameCanvas(int logicalWidth, int logicalHeight) {
+        this.logicalWidth = logicalWidth;
+        this.logicalHeight = logicalHeight;
+    }
+
+    /**
+     * @return the part of the canvas (in canvas pixels) each frame is drawn into. It is as big as it can be
+     * while keeping the shape of the game, and is centered
+     */
+    public Rectangle getViewport() {
+        int w = getWidth();
+        int h = getHeight();
+        if(w <= 0 || h <= 0) {
+            return new Rectangle(0, 0, logicalWidth, logicalHeight);
+        }
+        if((long) w * logicalHeight > (long) h * logicalWidth) {
+            //The canvas is wider than the game, so there are bars on the left and right
+            int width = (int) ((long) h * logicalWidth / logicalHeight);
+            return new Rectangle((w - width) / 2, 0, width, h);
+        }
+        int height = (int) ((long) w * logicalHeight / logicalWidth);
+        return new Rectangle(0, (h - height) / 2, w, height);
+    }
+
+    /**
+     * @param x the x position on the canvas (in canvas pixels)
+     * @param y the y position on the canvas (in canvas pixels)
+     * @return the given position in logical pixels (outside the logical size if it is in one of the bars)
+     */
+    public Point toLogical(int x, int y) {
+        Rectangle viewport = getViewport();
+        return new Point((int) Math.floor((x - viewport.x) * (double) logicalWidth / viewport.width),
+                (int) Math.floor((y - viewport.y) * (double) logicalHeight / viewport.height));
+    }
+
+    /**
+     * @param e an event from this canvas
+     * @return a copy of the event with its position in logical pixels
+     */
+    public MouseEvent toLogical(MouseEvent e) {
+        Point p = toLogical(e.getX(), e.getY());
+        if(e instanceof MouseWheelEvent) {
+            MouseWheelEvent w = (MouseWheelEvent) e;
+            return new MouseWheelEvent(this, w.getID(), w.getWhen(), w.getModifiersEx(),
+                    p.x, p.y, w.getClickCount(), w.isPopupTrigger(), w.getScrollType(), w.getScrollAmount(),
+                    w.getWheelRotation());
+        }
+        return new MouseEvent(this, e.getID(), e.getWhen(), e.getModifiersEx(),
+                p.x, p.y, e.getClickCount(), e.isPopupTrigger(), e.getButton());
+    }
+
+    /**
+     * @return the position of the mouse in logical pixels, or null if the mouse is not over the game
+     * (including when it is over one of the bars, or when there is no display)
+     */
+    @Override
+    public Point getMousePosition() {
+        if(GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        Point p = super.getMousePosition();
+        if(p == null) {
+            return null;
+        }
+        p = toLogical(p.x, p.y);
+        if(p.x < 0 || p.y < 0 || p.x >= logicalWidth || p.y >= logicalHeight) {
+            return null;
+        }
+        return p;
+    }
+}
@@ -15,6 +15,8 @@ import model.Debug;
  * @author Spencer Yoder
  */
 public class LayerManager {
+    /** A Component drawn on top of every LayerManager's Components, whichever State is showing (null for none) */
+    private static volatile Component overlay;
     /** The front of the LinkedList of Components */
     private Node head;
     /** A list to assist in the quick removal of Components */
@@ -35,6 +37,7 @@ public class LayerManager {
      */
     public void addComponent(Component c, int layer) {
         c.setLayer(layer);
+        c.markDirty();
         addNode(new Node(c));
     }
     
@@ -70,6 +73,7 @@ public class LayerManager {
     public void temporaryAdd(Component c, int layer) {
         c.setLayer(layer);
         c.setLayerIndex(tempList.size());
+        c.markDirty();
         Node n = new Node(c);
         addNode(n);
         tempList.add(n);
@@ -81,6 +85,7 @@ public class LayerManager {
      */
     public void remove(Component c) {
         if(!tempList.isEmpty()) {
+            c.markDirty();
             Node n = tempList.remove(c.getLayerIndex());
             for(int i = 0; i < tempList.size(); i++) {
                 if(tempList.get(i).c.getLayerIndex() != i) {
@@ -106,6 +111,51 @@ public class LayerManager {
             current.c.render(g);
             current = current.next;
         }
+        Component o = overlay;
+        if(o != null) {
+            o.render(g);
+        }
+    }
+    
+    /**
+     * Shows the given Component on top of everything every LayerManager draws, in place of the one shown before
+     * @param c the Component (null to show nothing)
+     * @see view.DebugOverlay
+     */
+    public static void setOverlay(Component c) {
+        if(overlay != null) {
+            overlay.markDirty();
+        }
+        overlay = c;
+        if(c != null) {
+            c.markDirty();
+        }
+    }
+    
+    /**
+     * @return the Component shown on top of everything every LayerManager draws (null if there is none)
+     */
+    public static Component getOverlay() {
+        return overlay;
+    }
+    
+    /**
+     * @return how many Components are in the LinkedList
+     */
+    public int size() {
+        int size = 0;
+        for(Node current = head; current != null; current = current.next) {
+            size++;
+        }
+        return size;
+    }
+    
+    /**
+     * @return how many of the Components were added with {@link view.LayerManager#temporaryAdd(Component, int)}
+     * and have not been removed
+     */
+    public int getTemporaryCount() {
+        return tempList.size();
     }
     
     /**
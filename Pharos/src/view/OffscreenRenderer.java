@@ -0,0 +1,73 @@
+/**
+ * 
+ */
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * A Renderer which draws frames into an image in memory instead of a window, so that the game can be drawn
+ * without a display (for example with java.awt.headless=true).
+ */
+public class OffscreenRenderer implements Renderer {
+    /** The image the frames are drawn into */
+    private BufferedImage image;
+    /** The Framebuffer the frames are drawn into (null unless software rendering is used) */
+    private Framebuffer framebuffer;
+    /** The Graphics of the frame being drawn */
+    private Graphics2D graphics;
+    /** Whether or not only the {@link view.DirtyRegion} is redrawn each frame */
+    private boolean dirtyRendering;
+
+    /**
+     * Constructs a new OffscreenRenderer of the given size
+     * @param width the width of the image in pixels
+     * @param height the height of the image in pixels
+     * @param softwareRendering whether or not the frames are drawn into a {@link view.Framebuffer}
+     * @param dirtyRendering whether or not only the {@link view.DirtyRegion} is redrawn each frame
+     */
+    public OffscreenRenderer(int width, int height, boolean softwareRendering, boolean dirtyRendering) {
+        this.dirtyRendering = dirtyRendering;
+        if(dirtyRendering) {
+            DirtyRegion.addAll();
+        }
+        if(softwareRendering) {
+            framebuffer = new Framebuffer(width, height);
+            image = framebuffer.getImage();
+        } else {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+    }
+
+    /**
+     * @see view.Renderer#beginFrame()
+     */
+    @Override
+    public Graphics2D beginFrame() {
+        graphics = image.createGraphics();
+        if(dirtyRendering) {
+            graphics.setClip(DirtyRegion.take(image.getWidth(), image.getHeight()));
+        }
+        graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+        Framebuffer.setActive(framebuffer);
+        return graphics;
+    }
+
+    /**
+     * @see view.Renderer#endFrame()
+     */
+    @Override
+    public void endFrame() {
+        Framebuffer.setActive(null);
+        graphics.dispose();
+        graphics = null;
+    }
+
+    /**
+     * @return the image the frames are drawn into, which holds the last frame that was finished
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * 
+ */
+package view;
+
+import java.awt.Graphics2D;
+
+/**
+ * An interface for somewhere frames of the game can be drawn, such as the game window or an image in memory.
+ * Each frame is drawn in logical pixels ({@link model.Game#width} by {@link model.Game#height}) to the Graphics
+ * returned by {@link view.Renderer#beginFrame()}, and is finished by {@link view.Renderer#endFrame()}.
+ */
+public interface Renderer {
+    /**
+     * Starts drawing a frame
+     * @return the Graphics to draw the frame to, or null if no frame can be drawn right now
+     */
+    Graphics2D beginFrame();
+
+    /**
+     * Finishes the frame started by {@link view.Renderer#beginFrame()} and shows it
+     */
+    void endFrame();
+}
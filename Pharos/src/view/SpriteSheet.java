@@ -3,6 +3,8 @@
  */
 package view;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 
 /**
@@ -21,6 +23,14 @@ public class SpriteSheet {
     public int columns;
     /** The number of sprites going down the sheet */
     public int rows;
+    /** The textures, cut out of the sheet the first time each is asked for, in the format [horizIdx][vertIdx] */
+    private BufferedImage[][] sprites;
+    /** The smaller copies of each texture in the format [level - 1][horizIdx][vertIdx] (null until generated) */
+    private BufferedImage[][][] mipmaps;
+    /** The pixels of the whole sheet as ARGB, one row after another (null until they are first needed) */
+    private int[] pixels;
+    /** Whether or not each texture has no transparent pixels in the format [horizIdx][vertIdx] */
+    private boolean[][] opaque;
     
     /**
      * Constructs the SpriteSheet with the given width, height and image
@@ -33,19 +43,117 @@ public class SpriteSheet {
         this.sheet = sheet;
         columns = sheet.getWidth() / width;
         rows = sheet.getHeight() / height;
+        sprites = new BufferedImage[columns][rows];
     }
     
     /**
      * @param horizIdx the horizontal position (in sprites, not pixels) of the texture
      * @param vertIdx the vertical position (in sprites, not pixels) of the texture
-     * @return a single texture from the sprite sheet
+     * @return a single texture from the sprite sheet (the same image every time)
      */
     public BufferedImage getSprite(int horizIdx, int vertIdx) {
-        int x = horizIdx * width;
-        int y = vertIdx * height;
-        if(x >= sheet.getWidth() || y >= sheet.getHeight()) {
+        if(horizIdx >= columns || vertIdx >= rows) {
             throw new IndexOutOfBoundsException();
         }
-        return sheet.getSubimage(x, y, width, height);
+        if(sprites[horizIdx][vertIdx] == null) {
+            sprites[horizIdx][vertIdx] = sheet.getSubimage(horizIdx * width, vertIdx * height, width, height);
+        }
+        return sprites[horizIdx][vertIdx];
+    }
+    
+    /**
+     * @return the pixels of the whole sheet as ARGB, one row after another, for drawing into a
+     * {@link view.Framebuffer}. The row of the texture at (horizIdx, vertIdx) starts at
+     * (vertIdx * height + row) * {@link view.SpriteSheet#getStride()} + horizIdx * width
+     */
+    public int[] getPixels() {
+        if(pixels == null) {
+            pixels = sheet.getRGB(0, 0, sheet.getWidth(), sheet.getHeight(), null, 0, sheet.getWidth());
+            opaque = new boolean[columns][rows];
+            for(int i = 0; i < columns; i++) {
+                for(int j = 0; j < rows; j++) {
+                    opaque[i][j] = true;
+                    for(int y = j * height; y < (j + 1) * height && opaque[i][j]; y++) {
+                        for(int x = i * width; x < (i + 1) * width; x++) {
+                            if(pixels[y * sheet.getWidth() + x] >>> 24 != 255) {
+                                opaque[i][j] = false;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return pixels;
+    }
+    
+    /**
+     * @return the width of the whole sheet in pixels (the distance between rows in
+     * {@link view.SpriteSheet#getPixels()})
+     */
+    public int getStride() {
+        return sheet.getWidth();
+    }
+    
+    /**
+     * @param horizIdx the horizontal position (in sprites, not pixels) of the texture
+     * @param vertIdx the vertical position (in sprites, not pixels) of the texture
+     * @return true if the texture has no transparent pixels, so it can be copied instead of blended
+     */
+    public boolean isOpaque(int horizIdx, int vertIdx) {
+        getPixels();
+        return opaque[horizIdx][vertIdx];
+    }
+    
+    /**
+     * Generates smaller copies of every texture so that they can be drawn zoomed out without shimmering.
+     * Each level is half the size of the one before it (rounded up), and is filtered down from it so that every
+     * pixel of the original contributes.
+     * @param levels how many levels to generate, including the full size textures (level 0)
+     */
+    public void generateMipmaps(int levels) {
+        mipmaps = new BufferedImage[levels - 1][columns][rows];
+        for(int i = 0; i < columns; i++) {
+            for(int j = 0; j < rows; j++) {
+                BufferedImage previous = getSprite(i, j);
+                for(int level = 1; level < levels; level++) {
+                    int w = (previous.getWidth() + 1) / 2;
+                    int h = (previous.getHeight() + 1) / 2;
+                    BufferedImage mip = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+                    Graphics2D g = mip.createGraphics();
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.drawImage(previous, 0, 0, w, h, null);
+                    g.dispose();
+                    mipmaps[level - 1][i][j] = mip;
+                    previous = mip;
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param horizIdx the horizontal position (in sprites, not pixels) of the texture
+     * @param vertIdx the vertical position (in sprites, not pixels) of the texture
+     * @param level the mipmap level (0 for the full size texture)
+     * @return a single texture from the sprite sheet at the given level
+     * @see view.SpriteSheet#generateMipmaps(int)
+     */
+    public BufferedImage getSprite(int horizIdx, int vertIdx, int level) {
+        if(level == 0) {
+            return getSprite(horizIdx, vertIdx);
+        }
+        return mipmaps[level - 1][horizIdx][vertIdx];
+    }
+    
+    /**
+     * @param level the mipmap level (0 for the full size textures)
+     * @return the width of a texture at the given level
+     */
+    public int getWidth(int level) {
+        int w = width;
+        for(int i = 0; i < level; i++) {
+            w = (w + 1) / 2;
+        }
+        return w;
     }
 }